@@ -2,20 +2,33 @@ package bookshop.controllers.Admin;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.PatternSyntaxException;
 
+import bookshop.controllers.StartupLoader;
 import bookshop.model.Customer;
 import bookshop.model.Product;
 import bookshop.model.RegularCustomer;
 import bookshop.model.VIPCustomer;
+import bookshop.service.AuthService;
 import bookshop.service.CustomerService;
 import bookshop.service.DiscountService;
+import bookshop.service.DiscountSimulator;
+import bookshop.service.PriceChange;
 import bookshop.service.ProductService;
-import bookshop.util.FileHandler;
-import org.mindrot.jbcrypt.BCrypt;
+import bookshop.service.QueryResult;
+import bookshop.service.UserDirectory;
+import bookshop.util.DebouncedSearch;
+import bookshop.util.Money;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -23,9 +36,11 @@ import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceDialog;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.PasswordField;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
@@ -41,12 +56,10 @@ import java.util.Map;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.scene.control.TextField;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.scene.control.TextInputDialog;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.HBox;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
@@ -56,11 +69,21 @@ import javafx.stage.Stage;
  * Handles product management, discount management, user management, customer viewing, and reports.
  */
 public class AdminController {
+    // Stand-in customer for showing VIP prices in the discount dialog
+    private static final Customer VIP_PREVIEW = new VIPCustomer(null, "VIP");
+    // Pause in typing before a table filter re-queries the service
+    private static final long TABLE_QUERY_DELAY_MS = 150;
 
     //<editor-fold desc="FXML Annotations - Header">
     @FXML
     private Text adminNameText;
 
+    @FXML
+    private ProgressBar loadProgress;
+
+    @FXML
+    private Label loadStatus;
+
     @FXML
     private Button logoutButton;
     //</editor-fold>
@@ -98,6 +121,12 @@ public class AdminController {
     @FXML
     private Button addProductBtn;
 
+    @FXML
+    private Button bulkRepriceBtn;
+
+    @FXML
+    private TextField productFilterField;
+
     @FXML
     private TableView<Product> productsTable;
 
@@ -131,6 +160,9 @@ public class AdminController {
     private TextField discountValueField;
 
     //<editor-fold desc="FXML Annotations - Customers Tab">
+    @FXML
+    private TextField customerFilterField;
+
     @FXML
     private TableView<Customer> customersTable;
 
@@ -204,18 +236,11 @@ public class AdminController {
      */
     @FXML
     public void initialize() {
+        long started = System.nanoTime();
         System.out.println("[AdminController] Initializing Admin Dashboard...");
         adminNameText.setText("Admin User");
-        
-        // Initialize services
-        try {
-            this.productService = new ProductService();
-            this.discountService = new DiscountService();
-            this.customerService = new CustomerService();
-            System.out.println("[AdminController] Services initialized");
-        } catch (IOException e) {
-            System.err.println("[AdminController] Error initializing services: " + e.getMessage());
-        }
+        StartupLoader loader = new StartupLoader("AdminController", loadProgress, loadStatus, started);
+        loader.measureFirstFrame(productsTable);
 
         // Load initial data for tables
         // Setup product row selection to allow editing
@@ -223,17 +248,48 @@ public class AdminController {
             Product selected = productsTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
                 productNameField.setText(selected.getName());
-                productPriceField.setText(String.valueOf(selected.getRealPrice()));
+                productPriceField.setText(Money.format(selected.getRealPriceCents()));
                 productQtyField.setText(String.valueOf(selected.getQuantity()));
                 addProductBtn.setText("Update Product");
                 editingProduct = true;
                 editingProductId = selected.getProductId();
             }
         });
-        loadProductsData();
-
-        loadCustomersData();
-        loadUsersData();
+        setupProductsTable();
+        setupCustomersTable();
+        setupUsersTable();
+
+        // Services are built in the background; each table fills in when its data arrives,
+        // and the actions that need a service stay disabled until then
+        productsTable.setPlaceholder(new Label("Loading products..."));
+        customersTable.setPlaceholder(new Label("Loading customers..."));
+        addProductBtn.setDisable(true);
+        bulkRepriceBtn.setDisable(true);
+        addCustomerBtn.setDisable(true);
+        loader.load("products", ProductService::shared, service -> {
+            productService = service;
+            discountService = new DiscountService(service);
+            productsTable.setPlaceholder(new Label("No products"));
+            addProductBtn.setDisable(false);
+            bulkRepriceBtn.setDisable(false);
+            loadProductsData();
+        }, e -> {
+            productsTable.setPlaceholder(new Label("Products could not be loaded"));
+            showError("Failed to load products: " + e.getMessage());
+        });
+        loader.load("customers", CustomerService::new, service -> {
+            customerService = service;
+            customersTable.setPlaceholder(new Label("No customers"));
+            addCustomerBtn.setDisable(false);
+            loadCustomersData();
+        }, e -> {
+            customersTable.setPlaceholder(new Label("Customers could not be loaded"));
+            showError("Failed to load customers: " + e.getMessage());
+        });
+        loader.load("users", users::getAll, accounts -> loadUsersData(), e -> {
+            usersTable.setPlaceholder(new Label("Users could not be loaded"));
+            showError("Failed to load users: " + e.getMessage());
+        });
         
         // Initialize role and customer type combo boxes
         userRoleField.setItems(FXCollections.observableArrayList("MANAGER", "CASHIER"));
@@ -300,9 +356,12 @@ public class AdminController {
             showError("Product Name and Price are required.");
             return;
         }
+        if (!productsLoaded()) {
+            return;
+        }
 
         try {
-            double price = Double.parseDouble(productPrice);
+            long priceCents = Money.parse(productPrice);
             int qty = 0;
             if (!productQty.isEmpty()) {
                 try {
@@ -312,19 +371,15 @@ public class AdminController {
                 }
             }
 
-            if (productService == null) {
-                productService = new ProductService();
-            }
-
             if (editingProduct && editingProductId != null) {
                 // Update existing product
                 Product existing = productService.findProductById(editingProductId);
                 if (existing != null) {
                     existing.setName(productName);
-                    existing.setRealPrice(price);
+                    existing.setRealPriceCents(priceCents);
                     existing.setQuantity(qty);
-                    // Persist changes
-                    productService.saveAllProducts();
+                    // Persist changes (only this product is logged)
+                    productService.updateProduct(existing);
                     System.out.println("[AdminController] Product updated successfully!");
                     showInfo("Product updated successfully!");
                 } else {
@@ -333,7 +388,8 @@ public class AdminController {
                 }
             } else {
                 // Add new product - ID will be auto-generated by service
-                Product p = new Product(null, productName, price);
+                Product p = new Product(null, productName, 0.0);
+                p.setRealPriceCents(priceCents);
                 p.setQuantity(qty);
                 productService.addProduct(p);
                 System.out.println("[AdminController] Product added successfully!");
@@ -361,6 +417,81 @@ public class AdminController {
         loadProductsData();
     }
 
+    /**
+     * Reprices many products at once (percentage or fixed amount, optionally tiers too),
+     * selected by id range, name pattern and/or price band. Persisted as a single batch.
+     */
+    @FXML
+    private void handleBulkReprice(ActionEvent event) {
+        if (!productsLoaded()) {
+            return;
+        }
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Bulk Reprice");
+        dialog.setHeaderText("Change prices for every matching product");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        ComboBox<String> modeBox = new ComboBox<>(FXCollections.observableArrayList("Percent (%)", "Amount (Rs.)"));
+        modeBox.getSelectionModel().selectFirst();
+        TextField amountField = new TextField();
+        amountField.setPromptText("e.g. 10 or -5");
+        CheckBox tiersBox = new CheckBox("Also change discount tier prices");
+        TextField fromIdField = new TextField();
+        fromIdField.setPromptText("From ID (optional)");
+        TextField toIdField = new TextField();
+        toIdField.setPromptText("To ID (optional)");
+        TextField nameField = new TextField();
+        nameField.setPromptText("Name contains / regex (optional)");
+        TextField minPriceField = new TextField();
+        minPriceField.setPromptText("Min price (optional)");
+        TextField maxPriceField = new TextField();
+        maxPriceField.setPromptText("Max price (optional)");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20));
+        grid.addRow(0, new Label("Change:"), modeBox, amountField);
+        grid.add(tiersBox, 1, 1, 2, 1);
+        grid.addRow(2, new Label("IDs:"), fromIdField, toIdField);
+        grid.addRow(3, new Label("Name:"), nameField);
+        grid.addRow(4, new Label("Price band:"), minPriceField, maxPriceField);
+        dialog.getDialogPane().setContent(grid);
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        if (!result.isPresent() || result.get() != ButtonType.OK) {
+            return;
+        }
+        try {
+            PriceChange change = modeBox.getSelectionModel().getSelectedIndex() == 0
+                    ? PriceChange.percent(Double.parseDouble(amountField.getText().trim()))
+                    : PriceChange.absolute(Money.parse(amountField.getText()));
+            change = change.withTiers(tiersBox.isSelected());
+            if (!fromIdField.getText().trim().isEmpty() || !toIdField.getText().trim().isEmpty()) {
+                String from = fromIdField.getText().trim().isEmpty() ? null : fromIdField.getText().trim();
+                String to = toIdField.getText().trim().isEmpty() ? null : toIdField.getText().trim();
+                change = change.forIdRange(from, to);
+            }
+            if (!nameField.getText().trim().isEmpty()) {
+                change = change.forNamePattern(nameField.getText().trim());
+            }
+            if (!minPriceField.getText().trim().isEmpty() || !maxPriceField.getText().trim().isEmpty()) {
+                long min = minPriceField.getText().trim().isEmpty() ? 0 : Money.parse(minPriceField.getText());
+                long max = maxPriceField.getText().trim().isEmpty() ? Long.MAX_VALUE : Money.parse(maxPriceField.getText());
+                change = change.forPriceBand(min, max);
+            }
+            int count = productService.repriceProducts(change);
+            loadProductsData();
+            showInfo("Repriced " + count + " product(s).");
+        } catch (NumberFormatException e) {
+            showError("Invalid number format.");
+        } catch (PatternSyntaxException e) {
+            showError("Invalid name pattern: " + e.getDescription());
+        } catch (IOException e) {
+            showError("Failed to save prices: " + e.getMessage());
+        }
+    }
+
 
         
 
@@ -387,33 +518,17 @@ public class AdminController {
 
         try {
             if (editingUser && editingUserId != null) {
-                // Update existing user in CSV
-                List<String> lines = FileHandler.readCsv("data/users.csv");
-                List<String> out = new ArrayList<>();
-                for (String line : lines) {
-                    String t = line.trim();
-                    if (t.isEmpty() || t.startsWith("#")) { out.add(line); continue; }
-                    String[] cols = line.split(",");
-                    if (cols.length >= 1 && cols[0].trim().equals(editingUserId)) {
-                        // Hash the password before saving
-                        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt());
-                        out.add(String.format("%s,%s,%s,%s", editingUserId, username, hashedPassword, role));
-                    } else {
-                        out.add(line);
-                    }
-                }
-                FileHandler.writeCsv("data/users.csv", out);
+                // Update existing user (hash the password before saving)
+                String hashedPassword = auth.hashPassword(password);
+                users.update(new UserDirectory.Account(editingUserId, username, hashedPassword, role));
                 showInfo("User updated successfully!");
                 editingUser = false;
                 editingUserId = null;
                 addUserBtn.setText("Add User");
             } else {
-                // Generate new user ID
-                String newUserId = generateNextUserId();
-                // Hash the password before saving
-                String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt());
-                String line = String.format("%s,%s,%s,%s", newUserId, username, hashedPassword, role);
-                FileHandler.appendLine("data/users.csv", line);
+                // Hash the password before saving; the directory assigns the next id
+                String hashedPassword = auth.hashPassword(password);
+                String newUserId = users.add(username, hashedPassword, role).getUserId();
                 showInfo("User added successfully! ID: " + newUserId);
             }
         } catch (IOException ioe) {
@@ -432,33 +547,6 @@ public class AdminController {
         loadUsersData();
     }
 
-    /**
-     * Generates the next user ID by finding the highest existing ID and incrementing.
-     */
-    private String generateNextUserId() throws IOException {
-        List<String> lines = FileHandler.readCsv("data/users.csv");
-        int maxId = 0;
-        
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty() || line.startsWith("#")) continue;
-            String[] cols = line.split(",");
-            if (cols.length >= 1) {
-                String id = cols[0].trim();
-                // Extract numeric part from ID like "u01", "u02", etc.
-                if (id.startsWith("u")) {
-                    try {
-                        int num = Integer.parseInt(id.substring(1));
-                        if (num > maxId) maxId = num;
-                    } catch (NumberFormatException e) {
-                        // Skip invalid IDs
-                    }
-                }
-            }
-        }
-        
-        return String.format("u%02d", maxId + 1);
-    }
 
 
 
@@ -486,96 +574,132 @@ public class AdminController {
     // --- Data Loading Methods (Placeholder) ---
 
     /**
-     * Loads products data from CSV into the products table.
+     * Sets up the products table once: columns, action buttons, and sorting and filtering
+     * done by the service's indexes instead of TableView comparators over every row.
      */
-    /**
-     * Loads products data from CSV into the products table.
-     */
-    private void loadProductsData() {
-        System.out.println("[AdminController] Loading products data...");
-        try {
-            if (productService == null) {
-                productService = new ProductService();
+    private void setupProductsTable() {
+        productIdCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getProductId()));
+        productNameCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getName()));
+        productPriceCol.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().getRealPrice()));
+        productQtyCol.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().getQuantity())));
+        
+        // Active Discount Column
+        productDiscountCol.setCellValueFactory(cell -> {
+            Map<Integer, Double> rules = cell.getValue().getDiscountRules();
+            if (rules.isEmpty()) return new SimpleStringProperty("-");
+            if (rules.size() == 1) {
+                // Display single rule
+                Map.Entry<Integer, Double> rule = rules.entrySet().iterator().next();
+                return new SimpleStringProperty("Buy " + rule.getKey() + "+ @ " + Money.format(Money.ofDouble(rule.getValue())));
+            } else {
+                // Display count of rules
+                return new SimpleStringProperty(rules.size() + " rules");
             }
-            List<Product> list = productService.getAllProducts();
-            ObservableList<Product> obs = FXCollections.observableArrayList(list);
-            
-            // Setup columns
-            productIdCol.setCellValueFactory(new PropertyValueFactory<>("productId"));
-            productNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-            productPriceCol.setCellValueFactory(new PropertyValueFactory<>("realPrice"));
-            productQtyCol.setCellValueFactory(cell -> new SimpleStringProperty(String.valueOf(cell.getValue().getQuantity())));
-            
-            // Active Discount Column
-            productDiscountCol.setCellValueFactory(cell -> {
-                Map<Integer, Double> rules = cell.getValue().getDiscountRules();
-                if (rules.isEmpty()) return new SimpleStringProperty("-");
-                if (rules.size() == 1) {
-                    // Display single rule
-                    Map.Entry<Integer, Double> rule = rules.entrySet().iterator().next();
-                    return new SimpleStringProperty("Buy " + rule.getKey() + "+ @ " + String.format("%.2f", rule.getValue()));
-                } else {
-                    // Display count of rules
-                    return new SimpleStringProperty(rules.size() + " rules");
+        });
+        productDiscountCol.setSortable(false);
+        productActionCol.setSortable(false);
+
+        // Add action buttons (Discount / Delete) to action column
+        productActionCol.setCellFactory(col -> new TableCell<Product, String>() {
+            private final Button discountBtn = new Button("Discount");
+            private final Button delBtn = new Button("Delete");
+            private final HBox box = new HBox(5, discountBtn, delBtn);
+
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty) {
+                    setGraphic(null);
+                    return;
                 }
-            });
-
-            productsTable.setItems(obs);
+                int idx = getIndex();
+                if (idx >= 0 && idx < getTableView().getItems().size()) {
+                    Product p = getTableView().getItems().get(idx);
+                    
+                    // Check if discount exists
+                    boolean hasDiscount = p.hasDiscounts();
+                    
+                    // Style buttons
+                    if (hasDiscount) {
+                        discountBtn.setText("Edit Deal");
+                        discountBtn.setStyle("-fx-background-color: #FF9800; -fx-text-fill: white; -fx-font-size: 10px;");
+                    } else {
+                        discountBtn.setText("Add Deal");
+                        discountBtn.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-size: 10px;");
+                    }
+                    delBtn.setStyle("-fx-background-color: #F44336; -fx-text-fill: white; -fx-font-size: 10px;");
 
-            // Add action buttons (Discount / Delete) to action column
-            productActionCol.setCellFactory(col -> new TableCell<Product, String>() {
-                private final Button discountBtn = new Button("Discount");
-                private final Button delBtn = new Button("Delete");
-                private final HBox box = new HBox(5, discountBtn, delBtn);
+                    // Discount Button Action - Custom Dialog
+                    discountBtn.setOnAction(ev -> showDiscountDialog(p));
 
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty) {
-                        setGraphic(null);
-                        return;
-                    }
-                    int idx = getIndex();
-                    if (idx >= 0 && idx < getTableView().getItems().size()) {
-                        Product p = getTableView().getItems().get(idx);
-                        
-                        // Check if discount exists
-                        boolean hasDiscount = !p.getDiscountRules().isEmpty();
-                        
-                        // Style buttons
-                        if (hasDiscount) {
-                            discountBtn.setText("Edit Deal");
-                            discountBtn.setStyle("-fx-background-color: #FF9800; -fx-text-fill: white; -fx-font-size: 10px;");
-                        } else {
-                            discountBtn.setText("Add Deal");
-                            discountBtn.setStyle("-fx-background-color: #4CAF50; -fx-text-fill: white; -fx-font-size: 10px;");
+                    // Delete Button Action
+                    delBtn.setOnAction(ev -> {
+                        try {
+                            productService.deleteProduct(p.getProductId());
+                            loadProductsData();
+                            System.out.println("[AdminController] Product deleted: " + p.getProductId());
+                        } catch (Exception ex) {
+                            System.err.println("[AdminController] Failed to delete product: " + ex.getMessage());
+                            Alert a = new Alert(Alert.AlertType.ERROR, "Failed to delete product: " + ex.getMessage());
+                            a.showAndWait();
                         }
-                        delBtn.setStyle("-fx-background-color: #F44336; -fx-text-fill: white; -fx-font-size: 10px;");
-
-                        // Discount Button Action - Custom Dialog
-                        discountBtn.setOnAction(ev -> showDiscountDialog(p));
-
-                        // Delete Button Action
-                        delBtn.setOnAction(ev -> {
-                            try {
-                                if (productService == null) productService = new ProductService();
-                                productService.deleteProduct(p.getProductId());
-                                loadProductsData();
-                                System.out.println("[AdminController] Product deleted: " + p.getProductId());
-                            } catch (Exception ex) {
-                                System.err.println("[AdminController] Failed to delete product: " + ex.getMessage());
-                                Alert a = new Alert(Alert.AlertType.ERROR, "Failed to delete product: " + ex.getMessage());
-                                a.showAndWait();
-                            }
-                        });
-                        
-                        setGraphic(box);
-                    }
+                    });
+                    
+                    setGraphic(box);
                 }
-            });
-        } catch (Exception e) {
-            System.err.println("[AdminController] Error loading products: " + e.getMessage());
+            }
+        });
+
+        // Header clicks and filter typing re-query on the search thread
+        productQuery = new DebouncedSearch<>(this::queryProducts,
+                result -> {
+                    if (result != null) {
+                        productsTable.setItems(FXCollections.observableList(result));
+                    }
+                },
+                Platform::runLater, TABLE_QUERY_DELAY_MS);
+        productsTable.setSortPolicy(table -> {
+            readProductSort();
+            productQuery.submit(productFilterField.getText());
+            return true;
+        });
+        productFilterField.textProperty().addListener((obs, oldVal, newVal) -> productQuery.submit(newVal));
+    }
+
+    private void readProductSort() {
+        TableColumn<Product, ?> column = productsTable.getSortOrder().isEmpty() ? null : productsTable.getSortOrder().get(0);
+        ProductService.SortKey key = null;
+        if (column == productIdCol) {
+            key = ProductService.SortKey.ID;
+        } else if (column == productNameCol) {
+            key = ProductService.SortKey.NAME;
+        } else if (column == productPriceCol) {
+            key = ProductService.SortKey.PRICE;
+        } else if (column == productQtyCol) {
+            key = ProductService.SortKey.QUANTITY;
+        }
+        productSortKey = key;
+        productSortDescending = key != null && column.getSortType() == TableColumn.SortType.DESCENDING;
+    }
+
+    // Runs on the search thread
+    private QueryResult<Product> queryProducts(String filter) {
+        ProductService service = productService;
+        return service == null ? null : service.queryProducts(filter, productSortKey, productSortDescending);
+    }
+
+    /**
+     * Re-queries the products for the filter and sort in effect on the search thread,
+     * so an edit never re-sorts the catalog on the FX thread. The table reads rows from
+     * the query result as it scrolls; nothing is copied.
+     */
+    private void loadProductsData() {
+        System.out.println("[AdminController] Loading products data...");
+        if (productService == null) {
+            return; // still loading; filled in when the products arrive
         }
+        // Replaces any query still in flight, which would show the rows from before this change
+        productQuery.submit(productFilterField.getText());
     }
 
     /**
@@ -611,6 +735,29 @@ public class AdminController {
         dialog.showAndWait();
     }
 
+    // Product actions need the catalog; until it has loaded they only explain why nothing happens
+    private boolean productsLoaded() {
+        if (productService == null) {
+            showError("Products are still loading. Please try again in a moment.");
+            return false;
+        }
+        return true;
+    }
+
+    private void showImpact(Product p, DiscountSimulator.Report report) {
+        String skipped = report.getSkippedBills() == 0 ? ""
+                : "\n(" + report.getSkippedBills() + " old-format bills were skipped.)";
+        DiscountSimulator.SkuImpact impact = report.getSku(p.getProductId());
+        if (impact == null) {
+            showInfo("No past sales of " + p.getName() + " found in bills/." + skipped);
+        } else {
+            showInfo("Replayed " + impact.getSales() + " past sales (" + impact.getUnits() + " units).\n"
+                    + "Revenue now: Rs. " + Money.format(impact.getBaselineCents()) + "\n"
+                    + "With this rule: Rs. " + Money.format(impact.getCandidateCents()) + "\n"
+                    + "Difference: Rs. " + Money.format(impact.getDeltaCents()) + skipped);
+        }
+    }
+
     /**
      * Helper to rebuild the discount dialog content.
      */
@@ -627,27 +774,32 @@ public class AdminController {
         rulesBox.setStyle("-fx-padding: 10; -fx-background-color: #f5f5f5; -fx-border-color: #ddd; -fx-border-radius: 5; -fx-background-radius: 5;");
         
         // Populate existing rules
-        if (p.getDiscountRules().isEmpty()) {
+        if (!p.hasDiscounts()) {
             Label noRules = new Label("No discount rules yet. Add one below!");
             noRules.setStyle("-fx-text-fill: #666; -fx-font-style: italic;");
             rulesBox.getChildren().add(noRules);
         } else {
-            // Sort rules by quantity for better display
-            p.getDiscountRules().entrySet().stream()
-                .sorted(Map.Entry.comparingByKey())
+            // Rules are kept sorted by quantity
+            p.getDiscountRules().entrySet()
                 .forEach(rule -> {
                     HBox ruleRow = new HBox(10);
                     ruleRow.setStyle("-fx-alignment: center-left; -fx-padding: 5;");
                     
-                    Label ruleLabel = new Label("Buy " + rule.getKey() + "+ @ $" + String.format("%.2f", rule.getValue()));
+                    String text = "Buy " + rule.getKey() + "+ @ $" + Money.format(Money.ofDouble(rule.getValue()));
+                    if (discountService != null) {
+                        long vipCents = discountService.getEffectiveUnitPriceCents(p.getProductId(), rule.getKey(), VIP_PREVIEW);
+                        if (vipCents >= 0) {
+                            text += "  (VIP: $" + Money.format(vipCents) + ")";
+                        }
+                    }
+                    Label ruleLabel = new Label(text);
                     ruleLabel.setStyle("-fx-font-size: 12px; -fx-min-width: 200px;");
                     
                     Button deleteBtn = new Button("Remove");
                     deleteBtn.setStyle("-fx-background-color: #F44336; -fx-text-fill: white; -fx-font-size: 10px;");
                     deleteBtn.setOnAction(ev -> {
                         try {
-                            p.removeDiscount(rule.getKey());
-                            productService.saveAllProducts();
+                            discountService.removeDiscount(p.getProductId(), rule.getKey());
                             // Refresh content in-place
                             updateDiscountDialogContent(p, mainBox);
                         } catch (Exception ex) {
@@ -682,9 +834,8 @@ public class AdminController {
         addBtn.setOnAction(ev -> {
             try {
                 int qty = Integer.parseInt(qtyField.getText());
-                double price = Double.parseDouble(priceField.getText());
-                p.setDiscount(qty, price);
-                productService.saveAllProducts();
+                long priceCents = Money.parse(priceField.getText());
+                discountService.addDiscountCents(p.getProductId(), qty, priceCents);
                 // Refresh content in-place
                 updateDiscountDialogContent(p, mainBox);
             } catch (NumberFormatException ex) {
@@ -700,16 +851,49 @@ public class AdminController {
         addGrid.add(priceField, 1, 1);
         addGrid.add(addBtn, 1, 2);
 
+        // What-if: replay past bills with the typed rule added before committing to it
+        Button previewBtn = new Button("Preview Impact");
+        previewBtn.setOnAction(ev -> {
+            Map<Integer, Double> candidate = new HashMap<>(p.getDiscountRules());
+            try {
+                candidate.put(Integer.parseInt(qtyField.getText()), Money.toDouble(Money.parse(priceField.getText())));
+            } catch (NumberFormatException ex) {
+                showError("Invalid input format.");
+                return;
+            }
+            List<Product> catalog = productService.getAllProducts();
+            // Reading every saved bill can take seconds, so the replay runs off the FX thread
+            Task<DiscountSimulator.Report> simulation = new Task<DiscountSimulator.Report>() {
+                @Override
+                protected DiscountSimulator.Report call() throws Exception {
+                    return new DiscountSimulator(catalog, ForkJoinPool.commonPool()).simulateBills(
+                            DiscountSimulator.listBills("bills"), Collections.singletonMap(p.getProductId(), candidate), null);
+                }
+            };
+            simulation.setOnSucceeded(done -> {
+                previewBtn.setDisable(false);
+                showImpact(p, simulation.getValue());
+            });
+            simulation.setOnFailed(done -> {
+                previewBtn.setDisable(false);
+                showError("Simulation failed: " + simulation.getException().getMessage());
+            });
+            previewBtn.setDisable(true);
+            Thread worker = new Thread(simulation, "ImpactPreviewThread");
+            worker.setDaemon(true);
+            worker.start();
+        });
+        addGrid.add(previewBtn, 1, 3);
+
         mainBox.getChildren().add(addGrid);
 
         // Clear all button if rules exist
-        if (!p.getDiscountRules().isEmpty()) {
+        if (p.hasDiscounts()) {
             Button clearAllBtn = new Button("Clear All Discounts");
             clearAllBtn.setStyle("-fx-background-color: #FF5722; -fx-text-fill: white;");
             clearAllBtn.setOnAction(ev -> {
                 try {
-                    p.clearDiscounts();
-                    productService.saveAllProducts();
+                    discountService.clearDiscounts(p.getProductId());
                     showInfo("All discounts cleared!");
                     // Refresh content in-place
                     updateDiscountDialogContent(p, mainBox);
@@ -729,57 +913,94 @@ public class AdminController {
 
 
     /**
-     * Loads customers data from CSV into the customers table.
+     * Sets up the customers table once; sorting and filtering use the service's indexes.
      */
-    private void loadCustomersData() {
-        System.out.println("[AdminController] Loading customers data...");
-        try {
-            if (customerService == null) {
-                customerService = new CustomerService();
+    private void setupCustomersTable() {
+        customerIdCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getCustomerId()));
+        customerNameCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getName()));
+        customerTypeCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getType()));
+        customerPhoneCol.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().getPhone()));
+        customerActionCol.setSortable(false);
+        // Actions column (Edit/Delete)
+        customerActionCol.setCellFactory(col -> new TableCell<Customer, String>() {
+            private final Button edit = new Button("Edit");
+            private final Button del = new Button("Delete");
+            private final HBox box = new HBox(5, edit, del);
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty) { setGraphic(null); return; }
+                int idx = getIndex();
+                if (idx >= 0 && idx < getTableView().getItems().size()) {
+                    Customer c = getTableView().getItems().get(idx);
+                    edit.setOnAction(ev -> {
+                        // Populate form fields for editing
+                        customerNameField.setText(c.getName());
+                        customerTypeField.setValue(c.getType());
+                        customerPhoneField.setText(c.getPhone() != null ? c.getPhone() : "");
+                        addCustomerBtn.setText("Update Customer");
+                        editingCustomer = true;
+                        editingCustomerId = c.getCustomerId();
+                    });
+                    del.setOnAction(ev -> {
+                        try {
+                            customerService.deleteCustomer(c.getCustomerId());
+                            loadCustomersData();
+                        } catch (Exception ex) {
+                            System.err.println("[AdminController] Failed to delete customer: " + ex.getMessage());
+                        }
+                    });
+                    setGraphic(box);
+                }
             }
-            List<Customer> list = customerService.getAllCustomers();
-            ObservableList<Customer> obs = FXCollections.observableArrayList(list);
-            customerIdCol.setCellValueFactory(new PropertyValueFactory<>("customerId"));
-            customerNameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-            customerTypeCol.setCellValueFactory(new PropertyValueFactory<>("type"));
-            customerPhoneCol.setCellValueFactory(new PropertyValueFactory<>("phone"));
-            // Actions column (Edit/Delete)
-            customerActionCol.setCellFactory(col -> new TableCell<Customer, String>() {
-                private final Button edit = new Button("Edit");
-                private final Button del = new Button("Delete");
-                private final HBox box = new HBox(5, edit, del);
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty) { setGraphic(null); return; }
-                    int idx = getIndex();
-                    if (idx >= 0 && idx < getTableView().getItems().size()) {
-                        Customer c = getTableView().getItems().get(idx);
-                        edit.setOnAction(ev -> {
-                            // Populate form fields for editing
-                            customerNameField.setText(c.getName());
-                            customerTypeField.setValue(c.getType());
-                            customerPhoneField.setText(c.getPhone() != null ? c.getPhone() : "");
-                            addCustomerBtn.setText("Update Customer");
-                            editingCustomer = true;
-                            editingCustomerId = c.getCustomerId();
-                        });
-                        del.setOnAction(ev -> {
-                            try {
-                                customerService.deleteCustomer(c.getCustomerId());
-                                loadCustomersData();
-                            } catch (Exception ex) {
-                                System.err.println("[AdminController] Failed to delete customer: " + ex.getMessage());
-                            }
-                        });
-                        setGraphic(box);
+        });
+
+        customerQuery = new DebouncedSearch<>(this::queryCustomers,
+                result -> {
+                    if (result != null) {
+                        customersTable.setItems(FXCollections.observableList(result));
                     }
-                }
-            });
-            customersTable.setItems(obs);
-        } catch (Exception e) {
-            System.err.println("[AdminController] Error loading customers: " + e.getMessage());
+                },
+                Platform::runLater, TABLE_QUERY_DELAY_MS);
+        customersTable.setSortPolicy(table -> {
+            readCustomerSort();
+            customerQuery.submit(customerFilterField.getText());
+            return true;
+        });
+        customerFilterField.textProperty().addListener((obs, oldVal, newVal) -> customerQuery.submit(newVal));
+    }
+
+    private void readCustomerSort() {
+        TableColumn<Customer, ?> column = customersTable.getSortOrder().isEmpty() ? null : customersTable.getSortOrder().get(0);
+        CustomerService.SortKey key = null;
+        if (column == customerIdCol) {
+            key = CustomerService.SortKey.ID;
+        } else if (column == customerNameCol) {
+            key = CustomerService.SortKey.NAME;
+        } else if (column == customerTypeCol) {
+            key = CustomerService.SortKey.TYPE;
+        } else if (column == customerPhoneCol) {
+            key = CustomerService.SortKey.PHONE;
         }
+        customerSortKey = key;
+        customerSortDescending = key != null && column.getSortType() == TableColumn.SortType.DESCENDING;
+    }
+
+    // Runs on the search thread
+    private QueryResult<Customer> queryCustomers(String filter) {
+        CustomerService service = customerService;
+        return service == null ? null : service.queryCustomers(filter, customerSortKey, customerSortDescending);
+    }
+
+    /**
+     * Re-queries the customers for the filter and sort in effect on the search thread.
+     */
+    private void loadCustomersData() {
+        System.out.println("[AdminController] Loading customers data...");
+        if (customerService == null) {
+            return; // still loading
+        }
+        customerQuery.submit(customerFilterField.getText());
     }
 
     /**
@@ -795,10 +1016,12 @@ public class AdminController {
             showError("Customer Name and Type are required.");
             return;
         }
+        if (customerService == null) {
+            showError("Customers are still loading. Please try again in a moment.");
+            return;
+        }
         
         try {
-            if (customerService == null) customerService = new CustomerService();
-            
             if (editingCustomer && editingCustomerId != null) {
                 // Update existing customer
                 Customer existing = customerService.findCustomerById(editingCustomerId);
@@ -846,82 +1069,68 @@ public class AdminController {
             showError("Failed to add/update customer: " + ex.getMessage());
         }
     }
-    
 
     /**
-     * Loads users data from CSV into the users table.
+     * Sets up the users table columns and action buttons once.
      */
+    @SuppressWarnings("unchecked")
+    private void setupUsersTable() {
+        // Note: user table columns are raw typed in FXML; set cell factories via lambda
+        ((TableColumn<UserRow, String>) userIdCol).setCellValueFactory(data -> new SimpleStringProperty(data.getValue().id));
+        ((TableColumn<UserRow, String>) userUsernameCol).setCellValueFactory(data -> new SimpleStringProperty(data.getValue().username));
+        ((TableColumn<UserRow, String>) userRoleCol).setCellValueFactory(data -> new SimpleStringProperty(data.getValue().role));
+        
+        // Add Edit/Delete buttons to users action column
+        ((TableColumn<UserRow, String>) userActionCol).setCellFactory(col -> new TableCell<UserRow, String>() {
+            private final Button editBtn = new Button("Edit");
+            private final Button delBtn = new Button("Delete");
+            private final HBox box = new HBox(5, editBtn, delBtn);
+            
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty) { setGraphic(null); return; }
+                int idx = getIndex();
+                if (idx >= 0 && idx < getTableView().getItems().size()) {
+                    UserRow u = getTableView().getItems().get(idx);
+                    
+                    editBtn.setOnAction(ev -> {
+                        // Populate form fields for editing
+                        userUsernameField.setText(u.username);
+                        userRoleField.setValue(u.role);
+                        userPasswordField.clear(); // Don't show password
+                        addUserBtn.setText("Update User");
+                        editingUser = true;
+                        editingUserId = u.id;
+                    });
+                    
+                    delBtn.setOnAction(ev -> {
+                        try {
+                            users.delete(u.id);
+                            loadUsersData();
+                            showInfo("User deleted: " + u.id);
+                        } catch (Exception ex) {
+                            showError("Failed to delete user: " + ex.getMessage());
+                        }
+                    });
+                    setGraphic(box);
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads users into the users table from the shared directory (no file read unless users.csv changed).
+     */
+    @SuppressWarnings("unchecked")
     private void loadUsersData() {
         System.out.println("[AdminController] Loading users data...");
         try {
-            List<String> lines = FileHandler.readCsv("data/users.csv");
             List<UserRow> rows = new ArrayList<>();
-            for (String line : lines) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) continue;
-                String[] cols = line.split(",");
-                if (cols.length >= 4) {
-                    rows.add(new UserRow(cols[0].trim(), cols[1].trim(), cols[3].trim()));
-                }
+            for (UserDirectory.Account account : users.getAll()) {
+                rows.add(new UserRow(account.getUserId(), account.getUsername(), account.getRole()));
             }
-            ObservableList<UserRow> obs = FXCollections.observableArrayList(rows);
-            // configure columns
-            // Note: user table columns are raw typed in FXML; set cell factories via lambda
-            ((TableColumn<UserRow, String>) userIdCol).setCellValueFactory(data -> new SimpleStringProperty(data.getValue().id));
-            ((TableColumn<UserRow, String>) userUsernameCol).setCellValueFactory(data -> new SimpleStringProperty(data.getValue().username));
-            ((TableColumn<UserRow, String>) userRoleCol).setCellValueFactory(data -> new SimpleStringProperty(data.getValue().role));
-            TableView<UserRow> ut = (TableView<UserRow>) usersTable;
-            ut.setItems(obs);
-            
-            // Add Edit/Delete buttons to users action column
-            ((TableColumn<UserRow, String>) userActionCol).setCellFactory(col -> new TableCell<UserRow, String>() {
-                private final Button editBtn = new Button("Edit");
-                private final Button delBtn = new Button("Delete");
-                private final HBox box = new HBox(5, editBtn, delBtn);
-                
-                @Override
-                protected void updateItem(String item, boolean empty) {
-                    super.updateItem(item, empty);
-                    if (empty) { setGraphic(null); return; }
-                    int idx = getIndex();
-                    if (idx >= 0 && idx < getTableView().getItems().size()) {
-                        UserRow u = getTableView().getItems().get(idx);
-                        
-                        editBtn.setOnAction(ev -> {
-                            // Populate form fields for editing
-                            userUsernameField.setText(u.username);
-                            userRoleField.setValue(u.role);
-                            userPasswordField.clear(); // Don't show password
-                            addUserBtn.setText("Update User");
-                            editingUser = true;
-                            editingUserId = u.id;
-                        });
-                        
-                        delBtn.setOnAction(ev -> {
-                            try {
-                                List<String> lines = FileHandler.readCsv("data/users.csv");
-                                List<String> out = new ArrayList<>();
-                                for (String line : lines) {
-                                    String t = line.trim();
-                                    if (t.isEmpty() || t.startsWith("#")) { out.add(line); continue; }
-                                    String[] cols = line.split(",");
-                                    if (cols.length >= 1 && cols[0].trim().equals(u.id)) {
-                                        continue; // skip to delete
-                                    } else {
-                                        out.add(line);
-                                    }
-                                }
-                                FileHandler.writeCsv("data/users.csv", out);
-                                loadUsersData();
-                                showInfo("User deleted: " + u.id);
-                            } catch (Exception ex) {
-                                showError("Failed to delete user: " + ex.getMessage());
-                            }
-                        });
-                        setGraphic(box);
-                    }
-                }
-            });
+            ((TableView<UserRow>) usersTable).setItems(FXCollections.observableArrayList(rows));
         } catch (Exception e) {
             System.err.println("[AdminController] Error loading users: " + e.getMessage());
         }
@@ -931,6 +1140,17 @@ public class AdminController {
     private ProductService productService;
     private DiscountService discountService;
     private CustomerService customerService;
+    // Admin tables show QueryResult views from the services; sort state is read on the FX thread
+    private DebouncedSearch<QueryResult<Product>> productQuery;
+    private DebouncedSearch<QueryResult<Customer>> customerQuery;
+    private volatile ProductService.SortKey productSortKey;
+    private volatile boolean productSortDescending;
+    private volatile CustomerService.SortKey customerSortKey;
+    private volatile boolean customerSortDescending;
+    // Shared with the login screens; re-reads users.csv only when the file changes
+    private final UserDirectory users = UserDirectory.shared();
+    // Hashes new passwords at the configured BCrypt cost
+    private final AuthService auth = new AuthService();
     // Edit state for products
     private boolean editingProduct = false;
     private String editingProductId = null;
@@ -1,8 +1,12 @@
 package bookshop.controllers;
 
 import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+import bookshop.exceptions.LoginThrottledException;
 import bookshop.service.AuthService;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -38,30 +42,42 @@ public class AdminLoginController {
             return;
         }
 
-        try {
-            String trimmedUsername = username.trim();
-            System.out.println("[AdminLoginController] Authenticating user: '" + trimmedUsername + "' for role MANAGER");
-            
-            boolean ok = auth.authenticate(trimmedUsername, password, "MANAGER");
+        String trimmedUsername = username.trim();
+        Node source = (Node) event.getSource();
+        Stage stage = (Stage) source.getScene().getWindow();
+        // BCrypt runs on AuthService's pool; the screen stays responsive while it checks
+        source.setDisable(true);
+        error_lbl.setText("Signing in...");
+        auth.authenticateAsync(trimmedUsername, password, "MANAGER").whenComplete((ok, err) -> Platform.runLater(() -> {
+            source.setDisable(false);
+            if (err != null) {
+                Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                error_lbl.setText(cause instanceof LoginThrottledException
+                        ? cause.getMessage()
+                        : cause instanceof RejectedExecutionException
+                        ? "Too many sign-ins at once. Please try again."
+                        : "Error during admin login: " + cause.getMessage());
+                System.err.println("[AdminLoginController] Login error: " + cause);
+                return;
+            }
             if (!ok) {
                 error_lbl.setText("Invalid admin credentials. Please try again.");
                 System.err.println("[AdminLoginController] Authentication failed for user: " + trimmedUsername);
                 return;
             }
-
-            System.out.println("[AdminLoginController] Authentication successful! Loading Admin Dashboard...");
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/FXML/Admin/Admin.fxml"));
-            Scene scene = new Scene(loader.load());
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.setTitle("Admin Dashboard");
-            stage.show();
-
-        } catch (IOException e) {
-            error_lbl.setText("Error during admin login: " + e.getMessage());
-            System.err.println("[AdminLoginController] IO Error: " + e.getMessage());
-            e.printStackTrace();
-        }
+            try {
+                System.out.println("[AdminLoginController] Authentication successful! Loading Admin Dashboard...");
+                FXMLLoader loader = new FXMLLoader(getClass().getResource("/FXML/Admin/Admin.fxml"));
+                Scene scene = new Scene(loader.load());
+                stage.setScene(scene);
+                stage.setTitle("Admin Dashboard");
+                stage.show();
+            } catch (IOException e) {
+                error_lbl.setText("Error during admin login: " + e.getMessage());
+                System.err.println("[AdminLoginController] IO Error: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }));
     }
 
     @FXML
@@ -1,8 +1,12 @@
 package bookshop.controllers;
 
 import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
+import bookshop.exceptions.LoginThrottledException;
 import bookshop.service.AuthService;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -38,29 +42,41 @@ public class CashierLoginController {
             return;
         }
 
-        try {
-            String trimmedUsername = username.trim();
-            System.out.println("[CashierLoginController] Authenticating user: '" + trimmedUsername + "' for role WORKER");
-            
-            boolean ok = auth.authenticate(trimmedUsername, password, "CASHIER");
+        String trimmedUsername = username.trim();
+        Node source = (Node) event.getSource();
+        Stage stage = (Stage) source.getScene().getWindow();
+        // BCrypt runs on AuthService's pool; the screen stays responsive while it checks
+        source.setDisable(true);
+        error_lbl.setText("Signing in...");
+        auth.authenticateAsync(trimmedUsername, password, "CASHIER").whenComplete((ok, err) -> Platform.runLater(() -> {
+            source.setDisable(false);
+            if (err != null) {
+                Throwable cause = err instanceof CompletionException && err.getCause() != null ? err.getCause() : err;
+                error_lbl.setText(cause instanceof LoginThrottledException
+                        ? cause.getMessage()
+                        : cause instanceof RejectedExecutionException
+                        ? "Too many sign-ins at once. Please try again."
+                        : "Error during cashier login: " + cause.getMessage());
+                System.err.println("[CashierLoginController] Login error: " + cause);
+                return;
+            }
             if (!ok) {
                 error_lbl.setText("Invalid cashier credentials. Please try again.");
                 System.err.println("[CashierLoginController] Authentication failed for user: " + trimmedUsername);
                 return;
             }
-
-            System.out.println("[CashierLoginController] Authentication successful! Loading POS...");
-            FXMLLoader loader = new FXMLLoader(getClass().getResource("/FXML/User/Cashier.fxml"));
-            Scene scene = new Scene(loader.load());
-            Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
-            stage.setScene(scene);
-            stage.setTitle("POS - Cashier");
-            stage.show();
-
-        } catch (IOException e) {
-            error_lbl.setText("Error during cashier login: " + e.getMessage());
-            System.err.println("[CashierLoginController] IO Error: " + e.getMessage());
-        }
+            try {
+                System.out.println("[CashierLoginController] Authentication successful! Loading POS...");
+                FXMLLoader loader = new FXMLLoader(getClass().getResource("/FXML/User/Cashier.fxml"));
+                Scene scene = new Scene(loader.load());
+                stage.setScene(scene);
+                stage.setTitle("POS - Cashier");
+                stage.show();
+            } catch (IOException e) {
+                error_lbl.setText("Error during cashier login: " + e.getMessage());
+                System.err.println("[CashierLoginController] IO Error: " + e.getMessage());
+            }
+        }));
     }
 
     @FXML
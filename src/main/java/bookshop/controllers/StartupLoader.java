@@ -0,0 +1,128 @@
+package bookshop.controllers;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javafx.concurrent.Task;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+
+/**
+ * Loads a screen's data on background threads so the window can show at once.
+ *
+ * Each {@link #load} runs as a JavaFX Task; its result is handed over on the FX thread and
+ * the screen fills in as each load finishes. A progress bar and status label show how many
+ * loads are still running and hide once none are. Also logs the time from the controller's
+ * start to the first frame on screen and to the end of the initial loads.
+ */
+public class StartupLoader {
+    private static final ExecutorService LOADER = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "LoaderThread");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String owner;
+    private final ProgressBar progressBar;
+    private final Label statusLabel;
+    private final long startedNanos;
+    private int started;
+    private int finished;
+    private boolean startupReported;
+
+    /**
+     * @param owner Name used in log lines, e.g. "CashierController".
+     * @param startedNanos System.nanoTime() when the screen started initializing.
+     */
+    public StartupLoader(String owner, ProgressBar progressBar, Label statusLabel, long startedNanos) {
+        this.owner = owner;
+        this.progressBar = progressBar;
+        this.statusLabel = statusLabel;
+        this.startedNanos = startedNanos;
+        showProgress();
+    }
+
+    /**
+     * Runs {@code work} on a background thread, then passes its result to {@code onLoaded}
+     * on the FX thread. Failures are logged and passed to {@code onFailed}.
+     * Must be called on the FX thread.
+     * @param what Shown in the status label, e.g. "products".
+     */
+    public <T> void load(String what, Callable<T> work, Consumer<T> onLoaded, Consumer<Throwable> onFailed) {
+        Task<T> task = new Task<T>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            onLoaded.accept(task.getValue());
+            finished(what);
+        });
+        task.setOnFailed(e -> {
+            Throwable error = task.getException();
+            System.err.println("[" + owner + "] Failed to load " + what + ": " + error.getMessage());
+            onFailed.accept(error);
+            finished(what);
+        });
+        started++;
+        statusLabel.setText("Loading " + what + "...");
+        showProgress();
+        LOADER.execute(task);
+    }
+
+    /**
+     * Logs the time to the first frame that shows {@code node}: the first layout pass
+     * after its window is on screen.
+     */
+    public void measureFirstFrame(Node node) {
+        node.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene != null) {
+                whenShown(scene);
+            }
+        });
+        if (node.getScene() != null) {
+            whenShown(node.getScene());
+        }
+    }
+
+    private void whenShown(Scene scene) {
+        Runnable[] once = new Runnable[1];
+        once[0] = () -> {
+            if (scene.getWindow() != null && scene.getWindow().isShowing()) {
+                scene.removePostLayoutPulseListener(once[0]);
+                System.out.println("[" + owner + "] First frame after " + elapsedMillis() + " ms"
+                        + (started > finished ? " (" + (started - finished) + " loads still running)" : ""));
+            }
+        };
+        scene.addPostLayoutPulseListener(once[0]);
+    }
+
+    private void finished(String what) {
+        finished++;
+        showProgress();
+        if (started == finished) {
+            statusLabel.setText("");
+            if (!startupReported) {
+                startupReported = true;
+                System.out.println("[" + owner + "] Data loaded after " + elapsedMillis() + " ms");
+            }
+        }
+    }
+
+    private void showProgress() {
+        boolean busy = started > finished;
+        progressBar.setProgress(started == 0 ? ProgressBar.INDETERMINATE_PROGRESS : (double) finished / started);
+        progressBar.setVisible(busy);
+        statusLabel.setVisible(busy);
+    }
+
+    private long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+}
@@ -0,0 +1,75 @@
+package bookshop.controllers.User;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+
+import java.util.function.Consumer;
+
+import bookshop.service.CartPricing;
+import bookshop.util.Money;
+
+/**
+ * The cashier's row for one cart line. Built once when the product enters the cart and
+ * updated in place when its line is re-priced, so a change to one line never touches
+ * the other rows. Styles live in MainTheme.css (cart-line and friends).
+ */
+class CartLineRow extends HBox {
+    private final Text nameText = new Text();
+    private final Text priceText = new Text();
+    private final Text discountText = new Text();
+    private final Text totalText = new Text();
+    private final VBox details = new VBox(3, nameText, priceText);
+    private CartPricing.Line line;
+
+    /**
+     * @param onRemove Called with the product id when the remove button is pressed.
+     */
+    CartLineRow(CartPricing.Line line, Consumer<String> onRemove) {
+        super(10);
+        getStyleClass().add("cart-line");
+        setAlignment(Pos.CENTER_LEFT);
+
+        nameText.getStyleClass().add("cart-line-name");
+        priceText.getStyleClass().add("cart-line-price");
+        discountText.getStyleClass().add("cart-line-saved");
+        totalText.getStyleClass().add("cart-line-total");
+        HBox.setHgrow(details, Priority.ALWAYS);
+
+        Button removeBtn = new Button("×");
+        removeBtn.getStyleClass().add("cart-line-remove");
+        String productId = line.getProduct().getProductId();
+        removeBtn.setOnAction(e -> onRemove.accept(productId));
+
+        VBox actions = new VBox(5, totalText, removeBtn);
+        actions.setAlignment(Pos.CENTER_RIGHT);
+        getChildren().addAll(details, actions);
+        bind(line);
+    }
+
+    /**
+     * Shows the given line; does nothing if it is the line already shown.
+     */
+    void bind(CartPricing.Line line) {
+        if (line == this.line) {
+            return;
+        }
+        this.line = line;
+        nameText.setText(line.getProduct().getName());
+        priceText.setText(line.getQuantity() + " x Rs. " + Money.format(line.getProduct().getRealPriceCents()));
+        totalText.setText("Rs. " + Money.format(line.getTotalCents()));
+
+        long itemDiscount = line.getDiscountCents();
+        if (itemDiscount > 0) {
+            discountText.setText("Saved: Rs. " + Money.format(itemDiscount));
+            if (discountText.getParent() == null) {
+                details.getChildren().add(discountText);
+            }
+        } else {
+            details.getChildren().remove(discountText);
+        }
+    }
+}
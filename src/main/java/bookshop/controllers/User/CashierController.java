@@ -2,13 +2,8 @@ package bookshop.controllers.User;
 
 import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.geometry.Pos;
 import javafx.geometry.Side;
 import javafx.scene.control.*;
-import javafx.scene.layout.GridPane;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.Priority;
-import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
@@ -16,22 +11,40 @@ import javafx.stage.Stage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import bookshop.controllers.StartupLoader;
+import bookshop.exceptions.InvalidProductException;
+import bookshop.exceptions.InvalidQuantityException;
 import bookshop.model.Customer;
 import bookshop.model.Product;
+import bookshop.service.BillingService;
+import bookshop.service.BundleService;
+import bookshop.service.CartPricing;
 import bookshop.service.CustomerService;
+import bookshop.service.ProductSearchIndex;
 import bookshop.service.ProductService;
+import bookshop.service.PromotionScheduler;
+import bookshop.service.PromotionService;
+import bookshop.strategy.BundleDiscountStrategy;
+import bookshop.strategy.CartAdjustment;
+import bookshop.util.DebouncedSearch;
+import bookshop.util.Money;
 
 public class CashierController {
+    // Pause in typing before a search runs
+    private static final long SEARCH_DELAY_MS = 150;
 
     @FXML private Text dateTimeText;
     @FXML private TextField searchField;
     @FXML private Button refreshBtn;
-    @FXML private GridPane productsGrid;
+    @FXML private ProgressBar loadProgress;
+    @FXML private Label loadStatus;
+    @FXML private ListView<List<Product>> productsGrid;
     
     // Customer Section
     @FXML private TextField customerPhoneField;
@@ -49,42 +62,80 @@ public class CashierController {
 
     private final List<Product> allProducts = new CopyOnWriteArrayList<>();
     private final List<Product> filteredProducts = new CopyOnWriteArrayList<>();
-    private final Map<String, CartItem> cartItems = new LinkedHashMap<>();
+    // Built on first load, then synced with each reload so only changed products are re-indexed
+    private final ProductSearchIndex productSearchIndex = new ProductSearchIndex();
     
     private ProductService productService;
     private CustomerService customerService;
+    private BundleService bundleService;
+    // Swaps promotion tiers into allProducts at window boundaries
+    private PromotionScheduler promotionScheduler;
     private Customer currentCustomer;
+    // Built from the current services on demand; dropped whenever either service is replaced
+    private BillingService billingService;
+    private CartPricing cart;
+    // Cart rows by product id, updated in place; bundle lines sit in a box after them
+    private final Map<String, CartLineRow> cartRows = new HashMap<>();
+    private final VBox cartAdjustmentsBox = new VBox(10);
     
     private WatchService watchService;
     private Thread fileWatchThread;
     private long productsLastModified = 0L;
+    // Counts product reloads; only the latest one may install its result
+    private int productLoads = 0;
 
     private ContextMenu suggestionsMenu;
+    // Products, customers and promotions load in the background; the screen fills in as they arrive
+    private StartupLoader loader;
+    // Typeahead queries run off the FX thread; only the latest result is shown
+    private DebouncedSearch<List<Product>> productSearch;
+    private DebouncedSearch<List<Customer>> customerSearch;
 
     @FXML
     public void initialize() {
+        long started = System.nanoTime();
         System.out.println("[CashierController] Initializing...");
+        loader = new StartupLoader("CashierController", loadProgress, loadStatus, started);
+        loader.measureFirstFrame(productsGrid);
         setupDateTime();
-        loadProducts();
-        setupFileWatcher();
+        productsGrid.setCellFactory(list -> new ProductRowCell(this::handleAddToCart));
+        productsGrid.setPlaceholder(new Label("Loading products..."));
         setupEventHandlers();
-        setupCustomerService();
         setupCustomerSearch();
-        updateCartDisplay();
+        loadProducts(false);
+        setupCustomerService();
+        setupPromotions();
+        setupFileWatcher();
+    }
+
+    private void setupPromotions() {
+        loader.load("promotions", () -> new PromotionService().getAllPromotions(), promotions -> {
+            promotionScheduler = new PromotionScheduler(promotions, () -> allProducts, Clock.systemDefaultZone());
+            promotionScheduler.setOnChange(() -> Platform.runLater(() -> {
+                repriceCart();
+                updateCartDisplay();
+                displayProducts();
+            }));
+            promotionScheduler.start();
+        }, e -> showError("Failed to load promotions: " + e.getMessage() + "\nPrices are shown without promotions."));
     }
 
     private void setupCustomerService() {
-        try {
-            customerService = new CustomerService();
-        } catch (IOException e) {
-            System.err.println("Failed to initialize customer service: " + e.getMessage());
-        }
+        loader.load("customers", CustomerService::new, service -> {
+            customerService = service;
+            billingService = null;
+            repriceCart();
+            updateCartDisplay();
+        }, e -> showError("Failed to load customers: " + e.getMessage()));
     }
 
     private void setupCustomerSearch() {
         suggestionsMenu = new ContextMenu();
+        customerSearch = new DebouncedSearch<>(this::findCustomers, this::showCustomerSuggestions,
+                Platform::runLater, SEARCH_DELAY_MS);
         customerPhoneField.textProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal == null || newVal.trim().isEmpty()) {
+                customerSearch.cancel();
                 suggestionsMenu.hide();
                 return;
             }
@@ -92,10 +143,11 @@ public class CashierController {
             // Don't show suggestions if the text matches the current customer (avoid popup after selection)
             if (currentCustomer != null && 
                (newVal.equals(currentCustomer.getName()) || newVal.equals(currentCustomer.getPhone()))) {
+                customerSearch.cancel();
                 return;
             }
 
-            handleSearchInput(newVal.trim());
+            customerSearch.submit(newVal.trim());
         });
         
         // Hide menu when field loses focus
@@ -106,23 +158,18 @@ public class CashierController {
         });
     }
 
-    private void handleSearchInput(String input) {
-        if (customerService == null) return;
-        
-        List<Customer> matches = new ArrayList<>();
-        String lowerInput = input.toLowerCase();
-        
-        for (Customer c : customerService.getAllCustomers()) {
-            boolean nameMatch = c.getName().toLowerCase().contains(lowerInput);
-            boolean phoneMatch = c.getPhone() != null && c.getPhone().contains(input);
-            
-            if (nameMatch || phoneMatch) {
-                matches.add(c);
-                if (matches.size() >= 10) break; // Limit results
-            }
+    // Runs on the search thread
+    private List<Customer> findCustomers(String input) {
+        CustomerService service = customerService;
+        if (service == null) {
+            return Collections.emptyList();
         }
-        
-        if (matches.isEmpty()) {
+        // Phone-prefix / name n-gram index; cost does not depend on the number of customers
+        return service.searchCustomers(input, 10);
+    }
+
+    private void showCustomerSuggestions(List<Customer> matches) {
+        if (matches.isEmpty() || !customerPhoneField.isFocused()) {
             suggestionsMenu.hide();
             return;
         }
@@ -154,6 +201,7 @@ public class CashierController {
         }
         
         suggestionsMenu.hide();
+        repriceCart();
         updateCartDisplay();
         showInfo("Customer selected: " + c.getName());
     }
@@ -189,13 +237,14 @@ public class CashierController {
                     while (true) {
                         WatchKey key = watchService.take();
                         for (WatchEvent<?> event : key.pollEvents()) {
-                            if (event.context().toString().equals("products.csv")) {
+                            String changed = event.context().toString();
+                            if (changed.equals("products.csv") || changed.equals("products.wal")) {
                                 try {
                                     Thread.sleep(300); // Debounce file change detection
                                 } catch (InterruptedException ie) {
                                     Thread.currentThread().interrupt();
                                 }
-                                Platform.runLater(this::loadProducts);
+                                Platform.runLater(() -> loadProducts(false));
                             }
                         }
                         if (!key.reset()) {
@@ -213,223 +262,241 @@ public class CashierController {
 
     @FXML
     private void handleRefresh() {
-        loadProducts();
-        showInfo("Products refreshed successfully!");
+        loadProducts(true);
     }
 
-    private void loadProducts() {
-        try {
-            File prodFile = new File("data/products.csv");
-            long lastMod = prodFile.exists() ? prodFile.lastModified() : 0L;
-            
-            // Only reload if file has changed
-            if (lastMod == productsLastModified && !allProducts.isEmpty()) {
-                return;
+    /**
+     * Reloads the catalog in the background if products.csv or the product log changed.
+     * @param announce true to tell the user when the reload is done.
+     */
+    private void loadProducts(boolean announce) {
+        // Changes land in the product log first and are folded into products.csv later
+        File prodFile = new File("data/products.csv");
+        File logFile = new File("data/products.wal");
+        long lastMod = Math.max(prodFile.exists() ? prodFile.lastModified() : 0L,
+                                logFile.exists() ? logFile.lastModified() : 0L);
+        
+        // Only reload if file has changed
+        if (lastMod == productsLastModified && !allProducts.isEmpty()) {
+            if (announce) {
+                showInfo("Products refreshed successfully!");
             }
-            productsLastModified = lastMod;
-            
-            productService = new ProductService();
+            return;
+        }
+        productsLastModified = lastMod;
+        int load = ++productLoads;
+        
+        loader.load("products", () -> {
+            // The catalog every screen edits, plus whatever another process wrote to the files
+            ProductService service = ProductService.shared();
+            service.refresh();
+            // The first index build is the slow part; keep it off the FX thread too.
+            // Snapshot and sync together, so an older snapshot never replaces a newer one
+            synchronized (productSearchIndex) {
+                productSearchIndex.sync(service.getAllProducts());
+            }
+            return service;
+        }, service -> {
+            if (load != productLoads) {
+                return; // a newer reload is running and will show its own result
+            }
+            productService = service;
+            billingService = null;
             allProducts.clear();
-            allProducts.addAll(productService.getAllProducts());
+            allProducts.addAll(service.getAllProducts());
+            if (promotionScheduler != null) {
+                promotionScheduler.applyTo(allProducts);
+            }
             filteredProducts.clear();
             filteredProducts.addAll(allProducts);
+            productsGrid.setPlaceholder(new Label("No products found"));
             displayProducts();
+            repriceCart();
+            updateCartDisplay();
             System.out.println("[CashierController] Loaded " + allProducts.size() + " products");
-        } catch (IOException e) {
+            if (announce) {
+                showInfo("Products refreshed successfully!");
+            }
+        }, e -> {
+            if (load != productLoads) {
+                return;
+            }
+            productsLastModified = 0L; // try again on the next refresh
             showError("Failed to load products: " + e.getMessage());
-        }
+        });
     }
 
     private void displayProducts() {
-        productsGrid.getChildren().clear();
-        int col = 0;
-        int row = 0;
-        int maxCols = 3; // Number of columns in grid
-        
-        for (Product product : filteredProducts) {
-            VBox productCard = createProductCard(product);
-            productsGrid.add(productCard, col, row);
-            
-            col++;
-            if (col >= maxCols) {
-                col = 0;
-                row++;
-            }
-        }
-    }
-
-    private VBox createProductCard(Product product) {
-        VBox card = new VBox(10);
-        card.getStyleClass().add("card");
-        card.setStyle("-fx-padding: 15; -fx-background-color: white; -fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 5, 0, 0, 0);");
-        card.setPrefWidth(200);
-        card.setAlignment(Pos.TOP_LEFT);
-        
-        // Product Name
-        Label nameLabel = new Label(product.getName());
-        nameLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
-        nameLabel.setWrapText(true);
-        
-        // Price and Stock
-        HBox priceBox = new HBox(10);
-        priceBox.setAlignment(Pos.CENTER_LEFT);
-        Label priceLabel = new Label("Rs. " + String.format("%.2f", product.getRealPrice()));
-        priceLabel.setStyle("-fx-text-fill: #d4af37; -fx-font-weight: bold; -fx-font-size: 14px;");
-        
-        Label stockLabel = new Label("Stock: " + product.getQuantity());
-        stockLabel.setStyle("-fx-text-fill: #888; -fx-font-size: 12px;");
-        
-        Region spacer = new Region();
-        HBox.setHgrow(spacer, Priority.ALWAYS);
-        
-        priceBox.getChildren().addAll(priceLabel, spacer, stockLabel);
-        
-        // Discount Badge
-        HBox badgeBox = new HBox();
-        if (!product.getDiscountRules().isEmpty()) {
-            Label badge = new Label("Bulk Offer Available");
-            badge.setStyle("-fx-background-color: #e8f5e9; -fx-text-fill: #2e7d32; -fx-padding: 2 8; -fx-background-radius: 10; -fx-font-size: 10px;");
-            badgeBox.getChildren().add(badge);
-        }
-        
-        // Add to Cart Controls
-        HBox controlsBox = new HBox(10);
-        controlsBox.setAlignment(Pos.CENTER_LEFT);
-        
-        Spinner<Integer> qtySpinner = new Spinner<>(1, Math.max(1, product.getQuantity()), 1);
-        qtySpinner.setEditable(true);
-        qtySpinner.setPrefWidth(70);
-        
-        Button addBtn = new Button("Add");
-        addBtn.setStyle("-fx-background-color: #1a1a1a; -fx-text-fill: white; -fx-font-size: 12px; -fx-padding: 5 15;");
-        addBtn.setOnAction(e -> handleAddToCart(product, qtySpinner.getValue()));
-        
-        // Disable if out of stock
-        if (product.getQuantity() <= 0) {
-            qtySpinner.setDisable(true);
-            addBtn.setDisable(true);
-            addBtn.setText("Out of Stock");
-        }
-        
-        controlsBox.getChildren().addAll(qtySpinner, addBtn);
-        
-        card.getChildren().addAll(nameLabel, priceBox, badgeBox, controlsBox);
-        return card;
+        // A fresh row view makes the ListView rebind the visible cells; nothing else is built
+        productsGrid.setItems(ProductRowCell.rowsOf(filteredProducts));
     }
 
     private void handleAddToCart(Product product, int quantity) {
         if (quantity <= 0) return;
+        if (cart == null) {
+            showWarning("Still loading customers, please try again in a moment.");
+            return;
+        }
         
         if (quantity > product.getQuantity()) {
             showWarning("Insufficient stock! Available: " + product.getQuantity());
             return;
         }
         
-        CartItem item = new CartItem(product, quantity, currentCustomer);
-        
-        if (cartItems.containsKey(product.getProductId())) {
-            CartItem existing = cartItems.get(product.getProductId());
-            int newQty = existing.quantity + quantity;
+        CartPricing.Line existing = cart.getLine(product.getProductId());
+        int newQty = quantity;
+        if (existing != null) {
+            newQty += existing.getQuantity();
             if (newQty > product.getQuantity()) {
                 showWarning("Cannot add more than available stock!");
                 return;
             }
-            existing.quantity = newQty;
-            // Update customer ref in case it changed
-            existing.customer = currentCustomer; 
-        } else {
-            cartItems.put(product.getProductId(), item);
         }
         
-        updateCartDisplay();
+        try {
+            // Only this line is re-priced; the cart totals are adjusted in place
+            billing().repriceLine(cart, product.getProductId(), newQty);
+        } catch (InvalidProductException e) {
+            showError(e.getMessage());
+            return;
+        }
+        
+        updateCartLine(product.getProductId());
     }
 
     @FXML
     private void handleSearch() {
-        String query = searchField.getText().toLowerCase().trim();
-        filteredProducts.clear();
-        
+        productSearch.submit(searchField.getText().trim());
+    }
+
+    // Runs on the search thread
+    private List<Product> findProducts(String query) {
         if (query.isEmpty()) {
-            filteredProducts.addAll(allProducts);
-        } else {
-            for (Product p : allProducts) {
-                if (p.getName().toLowerCase().contains(query) || 
-                    p.getProductId().toLowerCase().contains(query)) {
-                    filteredProducts.add(p);
-                }
-            }
+            return allProducts;
         }
+        // Token-prefix lookup in the inverted index, best matches first
+        return productSearchIndex.search(query);
+    }
+
+    private void showProducts(List<Product> matches) {
+        filteredProducts.clear();
+        filteredProducts.addAll(matches);
         displayProducts();
+        productsGrid.scrollTo(0);
     }
 
+    /**
+     * Brings every cart row in line with the cart, e.g. after the whole cart was re-priced.
+     * Rows whose line did not change are left alone.
+     */
     private void updateCartDisplay() {
-        cartItemsBox.getChildren().clear();
-        double subtotal = 0;
-        double totalDiscount = 0;
-        
-        for (CartItem item : cartItems.values()) {
-            // Update customer reference for all items to ensure current VIP status applies
-            item.customer = currentCustomer;
-            
-            HBox itemBox = createCartItemBox(item);
-            cartItemsBox.getChildren().add(itemBox);
-            
-            subtotal += item.getSubtotal();
-            totalDiscount += item.getTotalDiscount();
+        if (cart == null) {
+            return; // services still loading
         }
-        
-        double total = subtotal - totalDiscount;
-        
-        subtotalText.setText("Rs. " + String.format("%.2f", subtotal));
-        discountText.setText("- Rs. " + String.format("%.2f", totalDiscount));
-        totalText.setText("Rs. " + String.format("%.2f", Math.max(0, total)));
+        if (cartAdjustmentsBox.getParent() == null) {
+            cartItemsBox.getChildren().add(cartAdjustmentsBox);
+        }
+        cartRows.keySet().removeIf(productId -> {
+            if (cart.getLine(productId) == null) {
+                cartItemsBox.getChildren().remove(cartRows.get(productId));
+                return true;
+            }
+            return false;
+        });
+        for (CartPricing.Line line : cart.getLines()) {
+            showCartLine(line);
+        }
+        updateCartSummary();
     }
 
-    private HBox createCartItemBox(CartItem item) {
-        HBox box = new HBox(10);
-        box.setStyle("-fx-border-color: #eee; -fx-border-radius: 5; -fx-padding: 10; -fx-background-color: white;");
-        box.setAlignment(Pos.CENTER_LEFT);
-        
-        VBox details = new VBox(3);
-        Text nameText = new Text(item.product.getName());
-        nameText.setStyle("-fx-font-weight: bold; -fx-font-size: 13px;");
-        
-        Text priceText = new Text(item.quantity + " x Rs. " + String.format("%.2f", item.product.getRealPrice()));
-        priceText.setStyle("-fx-font-size: 12px; -fx-fill: #666;");
-        
-        details.getChildren().addAll(nameText, priceText);
-        
-        // Show discount details if applicable
-        if (item.getTotalDiscount() > 0) {
-            Text discText = new Text("Saved: Rs. " + String.format("%.2f", item.getTotalDiscount()));
-            discText.setStyle("-fx-font-size: 11px; -fx-fill: #4CAF50; -fx-font-weight: bold;");
-            details.getChildren().add(discText);
+    /**
+     * Updates the row of one product after only its line changed, plus the totals.
+     */
+    private void updateCartLine(String productId) {
+        CartPricing.Line line = cart.getLine(productId);
+        if (line == null) {
+            CartLineRow row = cartRows.remove(productId);
+            if (row != null) {
+                cartItemsBox.getChildren().remove(row);
+            }
+        } else {
+            showCartLine(line);
+        }
+        updateCartSummary();
+    }
+
+    private void showCartLine(CartPricing.Line line) {
+        CartLineRow row = cartRows.get(line.getProduct().getProductId());
+        if (row != null) {
+            row.bind(line);
+            return;
+        }
+        row = new CartLineRow(line, this::removeCartLine);
+        cartRows.put(line.getProduct().getProductId(), row);
+        // New lines go last, just above the bundle lines
+        cartItemsBox.getChildren().add(cartItemsBox.getChildren().indexOf(cartAdjustmentsBox), row);
+    }
+
+    private void removeCartLine(String productId) {
+        billing().removeLine(cart, productId);
+        updateCartLine(productId);
+    }
+
+    // Bundle lines and the running totals kept by CartPricing
+    private void updateCartSummary() {
+        cartAdjustmentsBox.getChildren().clear();
+        for (CartAdjustment adjustment : cart.getAdjustments()) {
+            Text bundleText = new Text("Bundle: " + adjustment.getDescription() + "  -Rs. " + Money.format(adjustment.getDiscountCents()));
+            bundleText.setStyle("-fx-font-size: 12px; -fx-fill: #4CAF50; -fx-font-weight: bold;");
+            cartAdjustmentsBox.getChildren().add(bundleText);
         }
         
-        HBox.setHgrow(details, Priority.ALWAYS);
-        
-        VBox actions = new VBox(5);
-        actions.setAlignment(Pos.CENTER_RIGHT);
-        
-        Text totalItemPrice = new Text("Rs. " + String.format("%.2f", item.getSubtotal() - item.getTotalDiscount()));
-        totalItemPrice.setStyle("-fx-font-weight: bold;");
-        
-        Button removeBtn = new Button("×");
-        removeBtn.setStyle("-fx-background-color: transparent; -fx-text-fill: #ff6b6b; -fx-font-size: 16px; -fx-padding: 0; -fx-cursor: hand;");
-        removeBtn.setOnAction(e -> {
-            cartItems.remove(item.product.getProductId());
-            updateCartDisplay();
-        });
-        
-        actions.getChildren().addAll(totalItemPrice, removeBtn);
-        
-        box.getChildren().addAll(details, actions);
-        return box;
+        subtotalText.setText("Rs. " + Money.format(cart.getSubtotalCents()));
+        discountText.setText("- Rs. " + Money.format(cart.getDiscountCents()));
+        totalText.setText("Rs. " + Money.format(Math.max(0, cart.getTotalCents())));
+    }
+
+    private BillingService billing() {
+        if (billingService == null) {
+            billingService = new BillingService(productService, customerService);
+            if (bundleService == null) {
+                try {
+                    bundleService = new BundleService();
+                } catch (IOException e) {
+                    System.err.println("[CashierController] Failed to load bundles: " + e.getMessage());
+                }
+            }
+            if (bundleService != null) {
+                billingService.addCartStrategy(new BundleDiscountStrategy(bundleService.getAllBundles()));
+            }
+        }
+        return billingService;
+    }
+
+    /**
+     * Prices the whole cart again, e.g. after the customer changed.
+     */
+    private void repriceCart() {
+        if (productService == null || customerService == null) {
+            return; // priced once both have loaded
+        }
+        Map<String, Integer> quantities = cart == null ? Collections.emptyMap() : cart.getQuantities();
+        try {
+            cart = billing().priceCart(quantities, currentCustomer == null ? null : currentCustomer.getCustomerId());
+        } catch (InvalidProductException e) {
+            showError("Failed to price cart: " + e.getMessage());
+        }
+    }
+
+    private void clearCart() {
+        for (String productId : cart.getQuantities().keySet()) {
+            billing().removeLine(cart, productId);
+        }
     }
 
     @FXML
     private void handleClearCart() {
-        if (cartItems.isEmpty()) return;
+        if (cart == null || cart.isEmpty()) return;
         
         Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
         alert.setTitle("Clear Cart");
@@ -438,14 +505,14 @@ public class CashierController {
         
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            cartItems.clear();
+            clearCart();
             updateCartDisplay();
         }
     }
 
     @FXML
     private void handleCheckout() {
-        if (cartItems.isEmpty()) {
+        if (cart == null || cart.isEmpty()) {
             showWarning("Cart is empty!");
             return;
         }
@@ -459,29 +526,17 @@ public class CashierController {
         
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            // Deduct stock
+            // Deduct stock for the whole cart as one transaction; a priced cart means the catalog has loaded
             try {
-                if (productService == null) {
-                    productService = new ProductService();
-                }
-                
-                for (CartItem item : cartItems.values()) {
-                    Product p = item.product;
-                    int newQty = p.getQuantity() - item.quantity;
-                    if (newQty < 0) {
-                        showError("Insufficient stock for " + p.getName() + ". Transaction cancelled.");
-                        return; // Cancel transaction
-                    }
-                    p.setQuantity(newQty);
-                    productService.updateProduct(p);
-                }
-                productService.saveAllProducts();
+                productService.deductStock(cart.getQuantities());
                 
                 generateBill();
-                cartItems.clear();
+                clearCart();
                 updateCartDisplay();
                 showInfo("Payment successful! Stock updated.");
                 
+            } catch (InvalidProductException | InvalidQuantityException e) {
+                showError(e.getMessage() + " Transaction cancelled.");
             } catch (IOException e) {
                 showError("Failed to update stock: " + e.getMessage());
                 e.printStackTrace();
@@ -507,13 +562,24 @@ public class CashierController {
             }
             bill.append("----------------------------\n");
             
-            for (CartItem item : cartItems.values()) {
-                bill.append(String.format("%-20s x%d\n", item.product.getName(), item.quantity));
-                bill.append(String.format("  @ Rs. %.2f\n", item.product.getRealPrice()));
-                if (item.getTotalDiscount() > 0) {
-                    bill.append(String.format("  Discount: -Rs. %.2f\n", item.getTotalDiscount()));
+            for (CartPricing.Line item : cart.getLines()) {
+                long discount = item.getDiscountCents();
+                String name = item.getProduct().getName();
+                bill.append(name);
+                for (int pad = name.length(); pad < 20; pad++) {
+                    bill.append(' ');
+                }
+                bill.append(" x").append(item.getQuantity()).append('\n');
+                Money.appendTo(bill.append("  @ Rs. "), item.getProduct().getRealPriceCents()).append('\n');
+                if (discount > 0) {
+                    Money.appendTo(bill.append("  Discount: -Rs. "), discount).append('\n');
                 }
-                bill.append(String.format("  Total:    Rs. %.2f\n", item.getSubtotal() - item.getTotalDiscount()));
+                Money.appendTo(bill.append("  Total:    Rs. "), item.getTotalCents()).append('\n');
+            }
+            // Indented so bill readers (DiscountSimulator) do not take these for item lines
+            for (CartAdjustment adjustment : cart.getAdjustments()) {
+                bill.append("  Bundle: ").append(adjustment.getDescription());
+                Money.appendTo(bill.append(" -Rs. "), adjustment.getDiscountCents()).append('\n');
             }
             
             bill.append("----------------------------\n");
@@ -537,6 +603,9 @@ public class CashierController {
         
         Optional<ButtonType> result = alert.showAndWait();
         if (result.isPresent() && result.get() == ButtonType.OK) {
+            if (promotionScheduler != null) {
+                promotionScheduler.stop();
+            }
             try {
                 Stage stage = (Stage) logoutBtn.getScene().getWindow();
                 stage.close();
@@ -547,6 +616,8 @@ public class CashierController {
     }
 
     private void setupEventHandlers() {
+        productSearch = new DebouncedSearch<>(this::findProducts, this::showProducts,
+                Platform::runLater, SEARCH_DELAY_MS);
         // Auto-search when typing
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
             handleSearch();
@@ -576,52 +647,4 @@ public class CashierController {
         alert.setContentText(message);
         alert.showAndWait();
     }
-
-    // Inner class for cart items
-    private static class CartItem {
-        Product product;
-        int quantity;
-        Customer customer;
-        
-        CartItem(Product product, int quantity, Customer customer) {
-            this.product = product;
-            this.quantity = quantity;
-            this.customer = customer;
-        }
-        
-        double getSubtotal() {
-            return product.getRealPrice() * quantity;
-        }
-        
-        double getTotalDiscount() {
-            double discount = 0;
-            
-            // Customer tier discount (VIP gets 5%)
-            if (customer != null) {
-                discount += getSubtotal() * customer.getBaseDiscountRate();
-            }
-            
-            // Product bulk discount based on quantity
-            Map<Integer, Double> discounts = product.getDiscountRules();
-            if (discounts != null && !discounts.isEmpty()) {
-                // Find applicable discount (highest quantity threshold <= current quantity)
-                Integer bestQty = null;
-                for (Integer qty : discounts.keySet()) {
-                    if (qty <= quantity) {
-                        if (bestQty == null || qty > bestQty) {
-                            bestQty = qty;
-                        }
-                    }
-                }
-                
-                if (bestQty != null) {
-                    double discountPrice = discounts.get(bestQty);
-                    double discountAmount = (product.getRealPrice() - discountPrice) * quantity;
-                    discount += discountAmount;
-                }
-            }
-            
-            return discount;
-        }
-    }
 }
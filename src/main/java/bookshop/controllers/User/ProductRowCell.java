@@ -0,0 +1,169 @@
+package bookshop.controllers.User;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SpinnerValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import bookshop.model.Product;
+import bookshop.util.Money;
+
+/**
+ * One row of the cashier's product grid.
+ *
+ * The grid is a ListView whose items are rows of {@link #COLUMNS} products. The ListView
+ * only creates cells for the rows on screen and rebinds them to other rows while scrolling,
+ * so the number of card nodes depends on the window size, not on the catalog size.
+ * Card styles live in MainTheme.css (product-card and friends).
+ */
+class ProductRowCell extends ListCell<List<Product>> {
+    static final int COLUMNS = 3;
+
+    private final HBox row = new HBox(20);
+    private final ProductCard[] cards = new ProductCard[COLUMNS];
+
+    /**
+     * @param onAdd Called with the card's product and chosen quantity when Add is pressed.
+     */
+    ProductRowCell(BiConsumer<Product, Integer> onAdd) {
+        for (int i = 0; i < COLUMNS; i++) {
+            cards[i] = new ProductCard(onAdd);
+            row.getChildren().add(cards[i]);
+        }
+        getStyleClass().add("product-row");
+        setText(null);
+    }
+
+    /**
+     * @return A read-only view of the products grouped into rows; nothing is copied.
+     */
+    static ObservableList<List<Product>> rowsOf(List<Product> products) {
+        return FXCollections.unmodifiableObservableList(FXCollections.observableList(new Rows(products)));
+    }
+
+    @Override
+    protected void updateItem(List<Product> products, boolean empty) {
+        super.updateItem(products, empty);
+        if (empty || products == null) {
+            setGraphic(null);
+            return;
+        }
+        for (int i = 0; i < COLUMNS; i++) {
+            if (i < products.size()) {
+                cards[i].bind(products.get(i));
+                cards[i].setVisible(true);
+            } else {
+                cards[i].bind(null);
+                cards[i].setVisible(false);
+            }
+        }
+        setGraphic(row);
+    }
+
+    // Groups a product list into rows on the fly
+    private static final class Rows extends AbstractList<List<Product>> {
+        private final List<Product> products;
+
+        Rows(List<Product> products) {
+            this.products = products;
+        }
+
+        @Override
+        public List<Product> get(int index) {
+            int from = index * COLUMNS;
+            int size = products.size();
+            if (from >= size) {
+                return Collections.emptyList();
+            }
+            // Copied: a cell keeps its row after the product list has moved on
+            return List.copyOf(products.subList(from, Math.min(size, from + COLUMNS)));
+        }
+
+        @Override
+        public int size() {
+            return (products.size() + COLUMNS - 1) / COLUMNS;
+        }
+    }
+
+    // A product card built once and rebound as its row is reused
+    private static final class ProductCard extends VBox {
+        private final Label nameLabel = new Label();
+        private final Label priceLabel = new Label();
+        private final Label stockLabel = new Label();
+        private final Label badge = new Label();
+        private final SpinnerValueFactory.IntegerSpinnerValueFactory qtyFactory =
+                new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 1, 1);
+        private final Spinner<Integer> qtySpinner = new Spinner<>(qtyFactory);
+        private final Button addBtn = new Button("Add");
+        private Product product;
+
+        ProductCard(BiConsumer<Product, Integer> onAdd) {
+            super(10);
+            getStyleClass().add("product-card");
+            setPrefWidth(200);
+            setAlignment(Pos.TOP_LEFT);
+
+            nameLabel.getStyleClass().add("product-card-name");
+            nameLabel.setWrapText(true);
+            priceLabel.getStyleClass().add("product-card-price");
+            stockLabel.getStyleClass().add("product-card-stock");
+            badge.getStyleClass().add("product-card-badge");
+
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            HBox priceBox = new HBox(10, priceLabel, spacer, stockLabel);
+            priceBox.setAlignment(Pos.CENTER_LEFT);
+            // Keeps its height when there is no badge, so rows line up
+            HBox badgeBox = new HBox(badge);
+            badgeBox.setMinHeight(18);
+
+            qtySpinner.setEditable(true);
+            qtySpinner.setPrefWidth(70);
+            addBtn.getStyleClass().add("product-card-add");
+            addBtn.setOnAction(e -> {
+                if (product != null) {
+                    qtySpinner.commitValue();
+                    onAdd.accept(product, qtySpinner.getValue());
+                }
+            });
+            HBox controlsBox = new HBox(10, qtySpinner, addBtn);
+            controlsBox.setAlignment(Pos.CENTER_LEFT);
+
+            getChildren().addAll(nameLabel, priceBox, badgeBox, controlsBox);
+        }
+
+        void bind(Product product) {
+            this.product = product;
+            if (product == null) {
+                return;
+            }
+            nameLabel.setText(product.getName());
+            priceLabel.setText("Rs. " + Money.format(product.getRealPriceCents()));
+            stockLabel.setText("Stock: " + product.getQuantity());
+
+            boolean offer = product.hasDiscounts() || product.hasPromotion();
+            badge.setVisible(offer);
+            badge.setText(product.hasPromotion() ? "Promotion On" : offer ? "Bulk Offer Available" : "");
+
+            qtyFactory.setMax(Math.max(1, product.getQuantity()));
+            qtyFactory.setValue(1);
+            boolean outOfStock = product.getQuantity() <= 0;
+            qtySpinner.setDisable(outOfStock);
+            addBtn.setDisable(outOfStock);
+            addBtn.setText(outOfStock ? "Out of Stock" : "Add");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package bookshop.exceptions;
+
+// Thrown when a login attempt is refused by the rate limiter; carries how long to wait before retrying.
+public class LoginThrottledException extends Exception {
+    private final long retryAfterMillis;
+
+    public LoginThrottledException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,48 @@
+package bookshop.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A cross-product promotion such as "textbook + workbook for Rs. 500".
+ * Each component is a {@link Discount}: buy {@code quantity} of {@code productId}
+ * at {@code price} per unit when the whole bundle is in the cart.
+ */
+public class Bundle {
+    private String bundleId;
+    private String name;
+    private List<Discount> components;
+
+    // Constructor
+    public Bundle(String bundleId, String name, List<Discount> components) {
+        this.bundleId = bundleId;
+        this.name = name;
+        this.components = new ArrayList<>(components);
+    }
+
+    // Getters
+    public String getBundleId() {
+        return bundleId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Discount> getComponents() {
+        return new ArrayList<>(components);
+    }
+
+    // Setters
+    public void setBundleId(String bundleId) {
+        this.bundleId = bundleId;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setComponents(List<Discount> components) {
+        this.components = new ArrayList<>(components);
+    }
+}
@@ -1,22 +1,35 @@
 package bookshop.model;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import bookshop.util.Money;
 
 // Team Member A: Define the Product class to hold product information.
 public class Product {
     private String productId;
     private String name;
-    private double realPrice;
-    private Map<Integer, Double> discountRules;
+    private long realPriceCents; // fixed-point, see bookshop.util.Money
+    // Bulk discount tiers as sorted primitive arrays; replaced as a whole on every change
+    private volatile TierTable discountTiers = TierTable.EMPTY;
+    // Tiers of the promotions currently running (set by PromotionScheduler, never persisted)
+    private volatile TierTable promotionTiers = TierTable.EMPTY;
+    // discountTiers and promotionTiers merged; what pricing reads
+    private volatile TierTable pricingTiers = TierTable.EMPTY;
+    // Bumped on every price or tier change so cached pricing can tell it is stale
+    private volatile int pricingVersion;
     private int quantity; // stock/quantity available
 
     // Constructor
     public Product(String productId, String name, double realPrice) {
         this.productId = productId;
         this.name = name;
-        this.realPrice = realPrice;
-        this.discountRules = new HashMap<>();
+        this.realPriceCents = Money.ofDouble(realPrice);
         this.quantity = 0;
     }
 
@@ -24,8 +37,9 @@ public class Product {
     public Product(String productId, String name, double realPrice, Map<Integer, Double> discountRules) {
         this.productId = productId;
         this.name = name;
-        this.realPrice = realPrice;
-        this.discountRules = new HashMap<>(discountRules);
+        this.realPriceCents = Money.ofDouble(realPrice);
+        this.discountTiers = TierTable.of(discountRules);
+        this.pricingTiers = discountTiers;
         this.quantity = 0;
     }
 
@@ -33,8 +47,9 @@ public class Product {
     public Product(String productId, String name, double realPrice, Map<Integer, Double> discountRules, int quantity) {
         this.productId = productId;
         this.name = name;
-        this.realPrice = realPrice;
-        this.discountRules = new HashMap<>(discountRules);
+        this.realPriceCents = Money.ofDouble(realPrice);
+        this.discountTiers = TierTable.of(discountRules);
+        this.pricingTiers = discountTiers;
         this.quantity = quantity;
     }
 
@@ -48,11 +63,113 @@ public class Product {
     }
 
     public double getRealPrice() {
-        return realPrice;
+        return Money.toDouble(realPriceCents);
+    }
+
+    public long getRealPriceCents() {
+        return realPriceCents;
     }
 
+    /**
+     * Read-only view of the discount rules (quantity threshold -> unit price), in ascending
+     * threshold order. The view is not copied; it reflects the rules at the time it is iterated.
+     */
     public Map<Integer, Double> getDiscountRules() {
-        return new HashMap<>(discountRules);
+        return rulesView;
+    }
+
+    /**
+     * @return true if at least one bulk discount tier is defined.
+     */
+    public boolean hasDiscounts() {
+        return discountTiers.size() > 0;
+    }
+
+    /**
+     * @return The number of bulk discount tiers.
+     */
+    public int getDiscountTierCount() {
+        return discountTiers.size();
+    }
+
+    /**
+     * @param index Tier index, 0 being the lowest threshold.
+     * @return The minimum quantity for that tier.
+     */
+    public int getDiscountThreshold(int index) {
+        return discountTiers.thresholds[index];
+    }
+
+    /**
+     * @param index Tier index, 0 being the lowest threshold.
+     * @return The unit price for that tier.
+     */
+    public double getDiscountPrice(int index) {
+        return Money.toDouble(discountTiers.prices[index]);
+    }
+
+    /**
+     * @param index Tier index, 0 being the lowest threshold.
+     * @return The unit price for that tier, in cents.
+     */
+    public long getDiscountPriceCents(int index) {
+        return discountTiers.prices[index];
+    }
+
+    /**
+     * @return true if a running promotion currently adds tiers to this product.
+     */
+    public boolean hasPromotion() {
+        return promotionTiers.size() > 0;
+    }
+
+    /**
+     * @return The highest quantity at which the unit price can still change (bulk tiers and
+     *         running promotions together), or -1 if the real price always applies.
+     */
+    public int getHighestPriceBreak() {
+        TierTable tiers = pricingTiers;
+        return tiers.size() == 0 ? -1 : tiers.thresholds[tiers.size() - 1];
+    }
+
+    /**
+     * @return The quantities at which the unit price can change (bulk tiers and running
+     *         promotions together), ascending. A copy.
+     */
+    public int[] getPriceBreaks() {
+        return pricingTiers.thresholds.clone();
+    }
+
+    /**
+     * Unit price for a purchase of the given quantity: the lowest price among the tiers
+     * (bulk and running promotions) whose threshold is reached, or the real price if that
+     * is lower or no tier applies.
+     * Binary search over the tier table; does not allocate or box.
+     * @param quantity The quantity purchased.
+     * @return The unit price to charge, in cents.
+     */
+    public long getUnitPriceCents(int quantity) {
+        TierTable tiers = pricingTiers;
+        int i = tiers.indexFor(quantity);
+        if (i < 0) {
+            return realPriceCents;
+        }
+        return Math.min(realPriceCents, tiers.bestPrices[i]);
+    }
+
+    /**
+     * @see #getUnitPriceCents(int)
+     */
+    public double getUnitPrice(int quantity) {
+        return Money.toDouble(getUnitPriceCents(quantity));
+    }
+
+    /**
+     * @return A counter that changes whenever the real price, a discount tier or the
+     *         running promotions change.
+     */
+    public int getPricingVersion() {
+        return pricingVersion;
     }
 
     public int getQuantity() {
@@ -73,7 +190,12 @@ public class Product {
     }
 
     public void setRealPrice(double realPrice) {
-        this.realPrice = realPrice;
+        setRealPriceCents(Money.ofDouble(realPrice));
+    }
+
+    public void setRealPriceCents(long realPriceCents) {
+        this.realPriceCents = realPriceCents;
+        pricingVersion++;
     }
 
     /**
@@ -82,7 +204,17 @@ public class Product {
      * @param price The price per unit when buying this quantity
      */
     public void setDiscount(int quantity, double price) {
-        discountRules.put(quantity, price);
+        setDiscountCents(quantity, Money.ofDouble(price));
+    }
+
+    /**
+     * Set a discount rule for a specific quantity
+     * @param quantity The quantity threshold for the discount
+     * @param priceCents The price per unit in cents when buying this quantity
+     */
+    public void setDiscountCents(int quantity, long priceCents) {
+        discountTiers = discountTiers.with(quantity, priceCents);
+        updatePricingTiers();
     }
 
     /**
@@ -90,13 +222,194 @@ public class Product {
      * @param quantity The quantity threshold to remove
      */
     public void removeDiscount(int quantity) {
-        discountRules.remove(quantity);
+        discountTiers = discountTiers.without(quantity);
+        updatePricingTiers();
     }
 
     /**
      * Clear all discount rules
      */
     public void clearDiscounts() {
-        discountRules.clear();
+        discountTiers = TierTable.EMPTY;
+        updatePricingTiers();
     }
-}
\ No newline at end of file
+
+    /**
+     * Replaces the tiers of the running promotions (threshold -> unit price in cents).
+     * Called at promotion window boundaries; the merged table is built here, once, so
+     * pricing never looks at promotion times. Not part of the persisted discount rules.
+     * @param tiersCents The promotion tiers, or null/empty when no promotion is running.
+     */
+    public void setPromotionTiers(Map<Integer, Long> tiersCents) {
+        if ((tiersCents == null || tiersCents.isEmpty()) && promotionTiers.size() == 0) {
+            return;
+        }
+        promotionTiers = TierTable.ofCents(tiersCents);
+        updatePricingTiers();
+    }
+
+    private synchronized void updatePricingTiers() {
+        TierTable merged = discountTiers;
+        TierTable promo = promotionTiers;
+        for (int i = 0; i < promo.size(); i++) {
+            int at = Arrays.binarySearch(merged.thresholds, promo.thresholds[i]);
+            long price = at >= 0 ? Math.min(merged.prices[at], promo.prices[i]) : promo.prices[i];
+            merged = merged.with(promo.thresholds[i], price);
+        }
+        pricingTiers = merged;
+        pricingVersion++;
+    }
+
+    /**
+     * Immutable, sorted tier table. bestPrices[i] is the lowest price among tiers 0..i,
+     * so the best price for a quantity is a single lookup after the binary search.
+     */
+    private static final class TierTable {
+        static final TierTable EMPTY = new TierTable(new int[0], new long[0]);
+
+        final int[] thresholds;
+        final long[] prices;     // cents
+        final long[] bestPrices; // cents
+
+        private TierTable(int[] thresholds, long[] prices) {
+            this.thresholds = thresholds;
+            this.prices = prices;
+            this.bestPrices = new long[prices.length];
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < prices.length; i++) {
+                best = Math.min(best, prices[i]);
+                bestPrices[i] = best;
+            }
+        }
+
+        static TierTable of(Map<Integer, Double> rules) {
+            if (rules == null || rules.isEmpty()) {
+                return EMPTY;
+            }
+            int[] t = new int[rules.size()];
+            int n = 0;
+            for (Integer q : rules.keySet()) {
+                t[n++] = q;
+            }
+            Arrays.sort(t);
+            long[] p = new long[n];
+            for (int i = 0; i < n; i++) {
+                p[i] = Money.ofDouble(rules.get(t[i]));
+            }
+            return new TierTable(t, p);
+        }
+
+        static TierTable ofCents(Map<Integer, Long> rules) {
+            if (rules == null || rules.isEmpty()) {
+                return EMPTY;
+            }
+            TierTable table = EMPTY;
+            for (Map.Entry<Integer, Long> e : rules.entrySet()) {
+                table = table.with(e.getKey(), e.getValue());
+            }
+            return table;
+        }
+
+        int size() {
+            return thresholds.length;
+        }
+
+        // Index of the highest threshold <= quantity, or -1 if none applies
+        int indexFor(int quantity) {
+            int i = Arrays.binarySearch(thresholds, quantity);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        TierTable with(int quantity, long price) {
+            int i = Arrays.binarySearch(thresholds, quantity);
+            if (i >= 0) {
+                long[] p = prices.clone();
+                p[i] = price;
+                return new TierTable(thresholds, p);
+            }
+            int at = -i - 1;
+            int[] t = new int[thresholds.length + 1];
+            long[] p = new long[prices.length + 1];
+            System.arraycopy(thresholds, 0, t, 0, at);
+            System.arraycopy(prices, 0, p, 0, at);
+            t[at] = quantity;
+            p[at] = price;
+            System.arraycopy(thresholds, at, t, at + 1, thresholds.length - at);
+            System.arraycopy(prices, at, p, at + 1, prices.length - at);
+            return new TierTable(t, p);
+        }
+
+        TierTable without(int quantity) {
+            int i = Arrays.binarySearch(thresholds, quantity);
+            if (i < 0) {
+                return this;
+            }
+            if (thresholds.length == 1) {
+                return EMPTY;
+            }
+            int[] t = new int[thresholds.length - 1];
+            long[] p = new long[prices.length - 1];
+            System.arraycopy(thresholds, 0, t, 0, i);
+            System.arraycopy(prices, 0, p, 0, i);
+            System.arraycopy(thresholds, i + 1, t, i, thresholds.length - i - 1);
+            System.arraycopy(prices, i + 1, p, i, prices.length - i - 1);
+            return new TierTable(t, p);
+        }
+    }
+
+    // Live read-only Map facade over the current tier table, for the UI and the serializer
+    private final Map<Integer, Double> rulesView = new AbstractMap<Integer, Double>() {
+        @Override
+        public int size() {
+            return discountTiers.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer && Arrays.binarySearch(discountTiers.thresholds, (Integer) key) >= 0;
+        }
+
+        @Override
+        public Double get(Object key) {
+            if (!(key instanceof Integer)) {
+                return null;
+            }
+            TierTable tiers = discountTiers;
+            int i = Arrays.binarySearch(tiers.thresholds, (Integer) key);
+            return i >= 0 ? Money.toDouble(tiers.prices[i]) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, Double>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, Double>>() {
+                @Override
+                public int size() {
+                    return discountTiers.size();
+                }
+
+                @Override
+                public Iterator<Map.Entry<Integer, Double>> iterator() {
+                    // Iterate the table as it was when iteration started
+                    TierTable tiers = discountTiers;
+                    return new Iterator<Map.Entry<Integer, Double>>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < tiers.size();
+                        }
+
+                        @Override
+                        public Map.Entry<Integer, Double> next() {
+                            if (next >= tiers.size()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new AbstractMap.SimpleImmutableEntry<>(tiers.thresholds[i], Money.toDouble(tiers.prices[i]));
+                        }
+                    };
+                }
+            };
+        }
+    };
+}
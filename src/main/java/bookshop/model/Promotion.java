@@ -0,0 +1,84 @@
+package bookshop.model;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A time-limited set of bulk tiers for one product, e.g. a back-to-school week.
+ * Active from {@code start} (inclusive) to {@code end} (exclusive). While active its
+ * tiers are merged with the product's own discount rules, lowest price winning.
+ */
+public class Promotion {
+    private String promotionId;
+    private String name;
+    private String productId;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private Map<Integer, Double> discountRules;
+
+    // Constructor
+    public Promotion(String promotionId, String name, String productId,
+                     LocalDateTime start, LocalDateTime end, Map<Integer, Double> discountRules) {
+        this.promotionId = promotionId;
+        this.name = name;
+        this.productId = productId;
+        this.start = start;
+        this.end = end;
+        this.discountRules = new TreeMap<>(discountRules);
+    }
+
+    // Getters
+    public String getPromotionId() {
+        return promotionId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    public Map<Integer, Double> getDiscountRules() {
+        return new TreeMap<>(discountRules);
+    }
+
+    public boolean isActiveAt(LocalDateTime time) {
+        return !time.isBefore(start) && time.isBefore(end);
+    }
+
+    // Setters
+    public void setPromotionId(String promotionId) {
+        this.promotionId = promotionId;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setProductId(String productId) {
+        this.productId = productId;
+    }
+
+    public void setStart(LocalDateTime start) {
+        this.start = start;
+    }
+
+    public void setEnd(LocalDateTime end) {
+        this.end = end;
+    }
+
+    public void setDiscountRules(Map<Integer, Double> discountRules) {
+        this.discountRules = new TreeMap<>(discountRules);
+    }
+}
@@ -1,18 +1,111 @@
 package bookshop.service;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import bookshop.util.FileHandler;
+import bookshop.exceptions.LoginThrottledException;
 
 import org.mindrot.jbcrypt.BCrypt;
 
 /**
- * Simple authentication service that validates credentials against data/users.csv
+ * Simple authentication service that validates credentials against data/users.csv,
+ * looked up through the shared {@link UserDirectory}.
+ *
+ * BCrypt is slow on purpose, so screens call {@link #authenticateAsync} and the check runs
+ * on a small bounded pool instead of the JavaFX thread. After a successful login a hash
+ * below the target cost (system property {@value #COST_PROPERTY}, default 10) is replaced
+ * by one at the target cost, so raising the cost upgrades users as they sign in.
+ * Every attempt first passes a {@link LoginThrottle}; a throttled attempt is refused
+ * before the account lookup, whether or not the username exists.
  */
 public class AuthService {
+    public static final String COST_PROPERTY = "bookshop.bcrypt.cost";
+    private static final int DEFAULT_COST = 10;
 
-    private static final String USERS_FILE = "data/users.csv";
+    // Two workers and a short queue: a burst of logins at shift change waits its turn
+    // instead of starting a thread per attempt; past the queue, attempts are refused
+    private static final ThreadPoolExecutor VERIFIER = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(16), r -> {
+                Thread t = new Thread(r, "AuthVerifierThread");
+                t.setDaemon(true);
+                return t;
+            });
+
+    // One set of limits for every screen in this process
+    private static final LoginThrottle SHARED_THROTTLE = new LoginThrottle();
+
+    private final UserDirectory users;
+    private final int targetCost;
+    private final Executor executor;
+    private final LoginThrottle throttle;
+
+    public AuthService() {
+        this(UserDirectory.shared(), configuredCost(), VERIFIER, SHARED_THROTTLE);
+    }
+
+    AuthService(UserDirectory users) {
+        this(users, configuredCost(), VERIFIER, new LoginThrottle());
+    }
+
+    AuthService(UserDirectory users, int targetCost, Executor executor, LoginThrottle throttle) {
+        this.users = users;
+        this.targetCost = targetCost;
+        this.executor = executor;
+        this.throttle = throttle;
+    }
+
+    /**
+     * @return The rate limiter, for its accepted/rejected counters.
+     */
+    public LoginThrottle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * @return The BCrypt cost from {@value #COST_PROPERTY}, clamped to BCrypt's 4..31 range.
+     */
+    public static int configuredCost() {
+        return Math.max(4, Math.min(31, Integer.getInteger(COST_PROPERTY, DEFAULT_COST)));
+    }
+
+    /**
+     * Hashes a new password at the target cost.
+     */
+    public String hashPassword(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(targetCost));
+    }
+
+    /**
+     * Same as {@link #authenticate}, run on the verifier pool.
+     * The future fails with an UncheckedIOException if the users file cannot be read, with
+     * a LoginThrottledException if the attempt was rate limited, or with a
+     * RejectedExecutionException if too many logins are already waiting.
+     * Callers on the JavaFX thread should hop back with Platform.runLater.
+     */
+    public CompletableFuture<Boolean> authenticateAsync(String username, String password, String requiredRole) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return authenticate(username, password, requiredRole);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (LoginThrottledException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<Boolean> busy = new CompletableFuture<>();
+            busy.completeExceptionally(e);
+            return busy;
+        }
+    }
 
     /**
      * Authenticate a user for a specific role.
@@ -21,66 +114,79 @@ public class AuthService {
      * @param requiredRole role to match (case-insensitive). If null, any role accepted.
      * @return true if credentials match and role matches (if provided)
      * @throws IOException if users file cannot be read
+     * @throws LoginThrottledException if too many attempts were made recently (nothing was checked)
      */
-    public boolean authenticate(String username, String password, String requiredRole) throws IOException {
+    public boolean authenticate(String username, String password, String requiredRole)
+            throws IOException, LoginThrottledException {
         // Input validation
         if (username == null || password == null) {
-            System.err.println("[AuthService] Invalid input: username or password is null");
             return false;
         }
 
-        List<String> lines = FileHandler.readCsv(USERS_FILE);
-        System.out.println("[AuthService] Read " + lines.size() + " lines from " + USERS_FILE);
-
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty() || line.startsWith("#")) {
-                continue;
-            }
+        // Rate limit before the lookup, so known and unknown usernames are refused alike
+        long waitNanos = throttle.tryAcquire(username);
+        if (waitNanos > 0) {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1;
+            throw new LoginThrottledException("Too many login attempts. Try again in "
+                    + ((waitMillis + 999) / 1000) + " s.", waitMillis);
+        }
 
-            String[] cols = line.split(",");
-            if (cols.length < 4) {
-                continue;
-            }
+        UserDirectory.Account account = users.findByUsername(username);
+        if (account == null) {
+            System.err.println("[AuthService] Authentication failed for user: " + username);
+            return false;
+        }
 
-            String csvUsername = cols[1].trim();
-            String csvPasswordHash = cols[2].trim();
-            String csvRole = cols[3].trim();
+        // Verify password using BCrypt
+        boolean passwordMatch;
+        try {
+            passwordMatch = BCrypt.checkpw(password, account.getPasswordHash());
+        } catch (IllegalArgumentException e) {
+            System.err.println("[AuthService] Invalid hash for user " + username + ", likely plain text. Please migrate passwords.");
+            return false;
+        }
+        if (!passwordMatch) {
+            System.err.println("[AuthService] Authentication failed for user: " + username);
+            return false;
+        }
+        upgradeHashIfNeeded(account, password);
+        if (requiredRole == null) {
+            return true;
+        }
 
-            if (csvUsername.equals(username)) {
-                // Verify password using BCrypt
-                boolean passwordMatch = false;
-                try {
-                    passwordMatch = BCrypt.checkpw(password, csvPasswordHash);
-                } catch (IllegalArgumentException e) {
-                    System.err.println("[AuthService] Invalid hash for user " + username + ", likely plain text. Please migrate passwords.");
-                    // Fallback for plain text (temporary/legacy support if needed, but better to fail secure)
-                    // passwordMatch = csvPasswordHash.equals(password); 
-                    return false; 
-                }
+        String req = requiredRole.trim().toUpperCase();
+        String csvR = account.getRole().trim().toUpperCase();
+        // Exact match or prefix match
+        boolean roleMatch = csvR.equals(req) || csvR.startsWith(req) || req.startsWith(csvR);
+        if (!roleMatch) {
+            System.err.println("[AuthService] Role mismatch for user " + username + ". Required: " + requiredRole + ", Found: " + account.getRole());
+        }
+        return roleMatch;
+    }
 
-                if (passwordMatch) {
-                    System.out.println("[AuthService] Password match for user: " + username);
-                    if (requiredRole == null) {
-                        return true;
-                    }
-                    
-                    String req = requiredRole.trim().toUpperCase();
-                    String csvR = csvRole.trim().toUpperCase();
-                    // Exact match or prefix match
-                    boolean roleMatch = csvR.equals(req) || csvR.startsWith(req) || req.startsWith(csvR);
-                    
-                    if (!roleMatch) {
-                        System.out.println("[AuthService] Role mismatch. Required: " + requiredRole + ", Found: " + csvRole);
-                    }
-                    return roleMatch;
-                } else {
-                    System.out.println("[AuthService] Password mismatch for user: " + username);
-                }
-            }
+    // Only the correct password can produce a new hash, so upgrades happen at login
+    private void upgradeHashIfNeeded(UserDirectory.Account account, String password) {
+        if (costOf(account.getPasswordHash()) >= targetCost) {
+            return;
+        }
+        try {
+            users.update(new UserDirectory.Account(account.getUserId(), account.getUsername(),
+                    hashPassword(password), account.getRole()));
+        } catch (IOException e) {
+            // The old hash still works; try again next login
+            System.err.println("[AuthService] Could not upgrade hash for user " + account.getUsername() + ": " + e.getMessage());
         }
+    }
 
-        System.err.println("[AuthService] Authentication failed for user: " + username);
-        return false;
+    // "$2a$10$..." -> 10; Integer.MAX_VALUE if unreadable so nothing is rewritten
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(6) != '$') {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
     }
 }
@@ -4,25 +4,57 @@ import bookshop.exceptions.InvalidProductException;
 import bookshop.model.Customer;
 import bookshop.model.Product;
 import bookshop.strategy.BulkDiscountStrategy;
+import bookshop.strategy.CartAdjustment;
+import bookshop.strategy.CartDiscountStrategy;
 import bookshop.strategy.DiscountStrategy;
 import bookshop.strategy.VIPDiscountStrategy;
+import bookshop.util.Money;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 // Team Member D: Implement the core billing calculation logic.
 public class BillingService {
     private final ProductService productService;
     private final CustomerService customerService;
     private final List<DiscountStrategy> strategies;
+    private final List<CartDiscountStrategy> cartStrategies = new CopyOnWriteArrayList<>();
+    // productId -> customer type -> strategy list specialised for that pair
+    private final Map<String, Map<String, CompiledPricing>> compiled = new ConcurrentHashMap<>();
 
     public BillingService(ProductService productService, CustomerService customerService) {
+        this(productService, customerService, defaultStrategies());
+    }
+
+    /**
+     * @param strategies The pipeline to apply, in order (e.g. a candidate configuration to simulate).
+     */
+    public BillingService(ProductService productService, CustomerService customerService, List<DiscountStrategy> strategies) {
         this.productService = productService;
         this.customerService = customerService;
-        this.strategies = new ArrayList<>();
+        this.strategies = new ArrayList<>(strategies);
+    }
+
+    /**
+     * @return The standard pipeline: bulk tier pricing, then the VIP discount.
+     */
+    public static List<DiscountStrategy> defaultStrategies() {
+        List<DiscountStrategy> strategies = new ArrayList<>();
         // Add strategies in order of application
-        this.strategies.add(new BulkDiscountStrategy());
-        this.strategies.add(new VIPDiscountStrategy());
+        strategies.add(new BulkDiscountStrategy());
+        strategies.add(new VIPDiscountStrategy());
+        return strategies;
+    }
+
+    /**
+     * Adds a cart-level step (e.g. bundle matching). Cart steps run after every line is priced,
+     * on each priceCart, repriceLine and removeLine.
+     */
+    public void addCartStrategy(CartDiscountStrategy strategy) {
+        cartStrategies.add(strategy);
     }
 
     /**
@@ -34,6 +66,14 @@ public class BillingService {
      * @throws InvalidProductException If the product is not found.
      */
     public double calculateTotal(String productName, int quantity, String customerId) throws InvalidProductException {
+        return Money.toDouble(calculateTotalCents(productName, quantity, customerId));
+    }
+
+    /**
+     * Same as {@link #calculateTotal(String, int, String)}, in exact cents.
+     * @throws InvalidProductException If the product or customer is not found.
+     */
+    public long calculateTotalCents(String productName, int quantity, String customerId) throws InvalidProductException {
         // Find the product
         Product product = productService.findProductByName(productName);
         if (product == null) {
@@ -46,13 +86,155 @@ public class BillingService {
             throw new InvalidProductException("Customer not found: " + customerId);
         }
 
-        double currentTotal = 0.0;
+        return compiledFor(product, customer).total(product, quantity, customer);
+    }
+
+    /**
+     * Prices a whole cart in one call. Products and the customer are resolved once and
+     * kept in the returned CartPricing, so later single-line changes can go through
+     * {@link #repriceLine(CartPricing, String, int)}.
+     * @param quantitiesById Product id -> quantity, in display order.
+     * @param customerId The customer's ID, or null for a guest.
+     * @return Per-line and total breakdown.
+     * @throws InvalidProductException If a product or the customer is not found.
+     */
+    public CartPricing priceCart(Map<String, Integer> quantitiesById, String customerId) throws InvalidProductException {
+        Customer customer = null;
+        if (customerId != null) {
+            customer = customerService.findCustomerById(customerId);
+            if (customer == null) {
+                throw new InvalidProductException("Customer not found: " + customerId);
+            }
+        }
+        CartPricing cart = new CartPricing(customer);
+        for (Map.Entry<String, Integer> e : quantitiesById.entrySet()) {
+            if (e.getValue() > 0) {
+                cart.put(priceLine(resolveProduct(e.getKey()), e.getValue(), customer));
+            }
+        }
+        applyCartStrategies(cart);
+        return cart;
+    }
+
+    /**
+     * Sets the quantity of one line and re-prices only that line; the cart totals are adjusted
+     * in place. A quantity of 0 or less removes the line. Products already in the cart are
+     * not looked up again.
+     * @throws InvalidProductException If the line is new and the product is not found.
+     */
+    public void repriceLine(CartPricing cart, String productId, int quantity) throws InvalidProductException {
+        if (quantity <= 0) {
+            removeLine(cart, productId);
+            return;
+        }
+        CartPricing.Line existing = cart.getLine(productId);
+        Product product = existing != null ? existing.getProduct() : resolveProduct(productId);
+        cart.put(priceLine(product, quantity, cart.getCustomer()));
+        applyCartStrategies(cart);
+    }
+
+    /**
+     * Removes one line and adjusts the cart totals.
+     */
+    public void removeLine(CartPricing cart, String productId) {
+        cart.remove(productId);
+        applyCartStrategies(cart);
+    }
+
+    private void applyCartStrategies(CartPricing cart) {
+        if (cartStrategies.isEmpty()) {
+            return;
+        }
+        List<CartAdjustment> adjustments = new ArrayList<>();
+        for (CartDiscountStrategy strategy : cartStrategies) {
+            adjustments.addAll(strategy.apply(cart.productsView(), cart.quantitiesView(), cart.getCustomer()));
+        }
+        cart.setAdjustments(adjustments);
+    }
+
+    private Product resolveProduct(String productId) throws InvalidProductException {
+        Product product = productService.findProductById(productId);
+        if (product == null) {
+            throw new InvalidProductException("Product not found: " + productId);
+        }
+        return product;
+    }
+
+    /**
+     * Prices one line for an already resolved product and customer (null for a guest).
+     * Safe to call from several threads at once; used by batch jobs that resolve
+     * the catalog up front.
+     */
+    public CartPricing.Line priceLine(Product product, int quantity, Customer customer) {
+        long subtotal = Money.times(product.getRealPriceCents(), quantity);
+        long total = compiledFor(product, customer).total(product, quantity, customer);
+        return new CartPricing.Line(product, quantity, subtotal, total);
+    }
+
+    /**
+     * Returns the cached pricing function for a product and customer tier (customer may be
+     * null for a guest), compiling it on first use or when the product's price or discount
+     * tiers have changed since.
+     */
+    private CompiledPricing compiledFor(Product product, Customer customer) {
+        String productKey = product.getProductId() == null ? "" : product.getProductId();
+        String tierKey = customer == null || customer.getType() == null ? "" : customer.getType();
+        Map<String, CompiledPricing> byTier = compiled.computeIfAbsent(productKey, k -> new ConcurrentHashMap<>());
+        CompiledPricing pricing = byTier.get(tierKey);
+        if (pricing == null || !pricing.isCurrent(product, customer)) {
+            pricing = compile(product, customer);
+            byTier.put(tierKey, pricing);
+        }
+        return pricing;
+    }
 
-        // Apply strategies
+    private CompiledPricing compile(Product product, Customer customer) {
+        // Read the version first: a change made while compiling forces a recompile next time
+        int version = product.getPricingVersion();
+        List<DiscountStrategy> steps = new ArrayList<>(strategies.size());
         for (DiscountStrategy strategy : strategies) {
-            currentTotal = strategy.applyDiscount(currentTotal, product, quantity, customer);
+            DiscountStrategy step = strategy.specialise(product, customer);
+            if (step != null) {
+                steps.add(step);
+            }
         }
+        return new CompiledPricing(product, version, rateOf(customer),
+                steps.toArray(new DiscountStrategy[0]));
+    }
+
+    private static double rateOf(Customer customer) {
+        return customer == null ? 0 : customer.getBaseDiscountRate();
+    }
 
-        return currentTotal;
+    /**
+     * The strategy pipeline for one (product, customer tier), with per-customer checks
+     * already resolved and tier breakpoints precomputed by the strategies.
+     */
+    private static final class CompiledPricing {
+        final Product product;
+        final int version;
+        final double customerRate;
+        final DiscountStrategy[] steps;
+
+        CompiledPricing(Product product, int version, double customerRate, DiscountStrategy[] steps) {
+            this.product = product;
+            this.version = version;
+            this.customerRate = customerRate;
+            this.steps = steps;
+        }
+
+        boolean isCurrent(Product p, Customer c) {
+            // A reloaded catalog hands out new Product instances, so identity is part of the check
+            return product == p && version == p.getPricingVersion()
+                    && Double.compare(customerRate, rateOf(c)) == 0;
+        }
+
+        long total(Product p, int quantity, Customer c) {
+            long total = 0;
+            for (DiscountStrategy step : steps) {
+                total = step.applyDiscount(total, p, quantity, c);
+            }
+            return total;
+        }
     }
 }
@@ -0,0 +1,224 @@
+package bookshop.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import bookshop.model.Customer;
+import bookshop.model.Product;
+import bookshop.util.FileHandler;
+import bookshop.util.Money;
+
+/**
+ * Headless pricing job for large back-office orders (school and library bulk orders).
+ *
+ * Input is a CSV order file with a header and rows of {@code product_id,quantity}.
+ * Lines are read in chunks and each chunk is priced on a fork-join pool through
+ * {@link BillingService#priceLine}, so the discount pipeline is the same one the cashier uses.
+ * Priced chunks are written out in input order as soon as they are ready; only a few chunks
+ * are in flight at once, so memory stays flat however long the order is.
+ *
+ * The catalog is resolved into a plain map before pricing starts, so workers never
+ * contend on ProductService's lock.
+ *
+ * Usage: {@code BulkOrderPricer <order.csv> [output.csv] [customerId]}
+ */
+public class BulkOrderPricer {
+    static final String OUTPUT_HEADER = "line,product_id,product_name,quantity,unit_price,subtotal,discount,total,status";
+    private static final int CHUNK_LINES = 2048;
+
+    private final BillingService billingService;
+    private final Map<String, Product> catalog;
+    private final Customer customer;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+
+    /**
+     * @param billingService Pricing pipeline to use.
+     * @param products The catalog to resolve order lines against.
+     * @param customer The customer the order is priced for, or null for list prices.
+     * @param pool Pool the chunks are priced on.
+     */
+    public BulkOrderPricer(BillingService billingService, List<Product> products, Customer customer, ForkJoinPool pool) {
+        this.billingService = billingService;
+        this.catalog = new HashMap<>(products.size() * 2);
+        for (Product p : products) {
+            catalog.put(p.getProductId(), p);
+        }
+        this.customer = customer;
+        this.pool = pool;
+        this.maxInFlight = pool.getParallelism() * 2;
+    }
+
+    /**
+     * Prices every line of the order file and streams the result to {@code out}.
+     * Lines with an unknown product or an invalid quantity are written with an error status
+     * and left out of the totals; they do not stop the job.
+     * @return Totals for the whole order.
+     */
+    public Summary price(String orderFilePath, Writer out) throws IOException {
+        out.write(OUTPUT_HEADER);
+        out.write(System.lineSeparator());
+        Summary summary = new Summary();
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        Chunk[] filling = { new Chunk() };
+
+        FileHandler.readCsv(orderFilePath, true, row -> {
+            filling[0].add(row.lineNumber(), row.get(0), row.getInt(1, 0));
+            if (filling[0].size == CHUNK_LINES) {
+                submit(filling[0], inFlight, out, summary);
+                filling[0] = new Chunk();
+            }
+        });
+        if (filling[0].size > 0) {
+            submit(filling[0], inFlight, out, summary);
+        }
+        while (!inFlight.isEmpty()) {
+            write(inFlight.poll().join(), out, summary);
+        }
+        out.flush();
+        return summary;
+    }
+
+    private void submit(Chunk chunk, ArrayDeque<ForkJoinTask<Chunk>> inFlight, Writer out, Summary summary) throws IOException {
+        // Keep output in input order: wait for the oldest chunk before getting too far ahead
+        while (inFlight.size() >= maxInFlight) {
+            write(inFlight.poll().join(), out, summary);
+        }
+        inFlight.add(pool.submit(() -> priceChunk(chunk)));
+    }
+
+    private Chunk priceChunk(Chunk chunk) {
+        StringBuilder sb = new StringBuilder(chunk.size * 64);
+        String newline = System.lineSeparator();
+        for (int i = 0; i < chunk.size; i++) {
+            String id = chunk.productIds[i];
+            int qty = chunk.quantities[i];
+            sb.append(chunk.lineNumbers[i]).append(',').append(id).append(',');
+            Product product = catalog.get(id);
+            if (product == null) {
+                sb.append(",").append(qty).append(",,,,,UNKNOWN_PRODUCT").append(newline);
+                chunk.failed++;
+                continue;
+            }
+            sb.append(FileHandler.escapeCsvField(product.getName())).append(',').append(qty).append(',');
+            if (qty <= 0) {
+                sb.append(",,,,INVALID_QUANTITY").append(newline);
+                chunk.failed++;
+                continue;
+            }
+            CartPricing.Line line = billingService.priceLine(product, qty, customer);
+            Money.appendTo(sb, product.getUnitPriceCents(qty)).append(',');
+            Money.appendTo(sb, line.getSubtotalCents()).append(',');
+            Money.appendTo(sb, line.getDiscountCents()).append(',');
+            Money.appendTo(sb, line.getTotalCents()).append(",OK").append(newline);
+            chunk.subtotalCents += line.getSubtotalCents();
+            chunk.totalCents += line.getTotalCents();
+        }
+        chunk.output = sb;
+        return chunk;
+    }
+
+    private static void write(Chunk chunk, Writer out, Summary summary) throws IOException {
+        out.append(chunk.output);
+        summary.lines += chunk.size;
+        summary.failedLines += chunk.failed;
+        summary.subtotalCents += chunk.subtotalCents;
+        summary.totalCents += chunk.totalCents;
+    }
+
+    /**
+     * Totals for a priced order. Amounts are in cents.
+     */
+    public static final class Summary {
+        private int lines;
+        private int failedLines;
+        private long subtotalCents;
+        private long totalCents;
+
+        public int getLines() {
+            return lines;
+        }
+
+        public int getFailedLines() {
+            return failedLines;
+        }
+
+        public long getSubtotalCents() {
+            return subtotalCents;
+        }
+
+        public long getDiscountCents() {
+            return subtotalCents - totalCents;
+        }
+
+        public long getTotalCents() {
+            return totalCents;
+        }
+    }
+
+    // A block of input lines copied out of the reused CsvRow, plus its priced output
+    private static final class Chunk {
+        final int[] lineNumbers = new int[CHUNK_LINES];
+        final String[] productIds = new String[CHUNK_LINES];
+        final int[] quantities = new int[CHUNK_LINES];
+        int size;
+        int failed;
+        long subtotalCents;
+        long totalCents;
+        CharSequence output;
+
+        void add(int lineNumber, String productId, int quantity) {
+            lineNumbers[size] = lineNumber;
+            productIds[size] = productId;
+            quantities[size] = quantity;
+            size++;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BulkOrderPricer <order.csv> [output.csv] [customerId]");
+            System.exit(2);
+        }
+        try {
+            ProductService productService = ProductService.shared();
+            CustomerService customerService = new CustomerService();
+            Customer customer = null;
+            if (args.length >= 3) {
+                customer = customerService.findCustomerById(args[2]);
+                if (customer == null) {
+                    System.err.println("[BulkOrderPricer] Customer not found: " + args[2]);
+                    System.exit(1);
+                }
+            }
+            BillingService billing = new BillingService(productService, customerService);
+            BulkOrderPricer pricer = new BulkOrderPricer(billing, productService.getAllProducts(), customer, ForkJoinPool.commonPool());
+
+            long start = System.nanoTime();
+            Summary summary;
+            try (Writer out = args.length >= 2
+                    ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)
+                    : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+                summary = pricer.price(args[0], out);
+            }
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            System.err.println("[BulkOrderPricer] Priced " + summary.getLines() + " lines (" + summary.getFailedLines()
+                    + " failed) in " + ms + " ms. Total: " + Money.format(summary.getTotalCents())
+                    + ", discount: " + Money.format(summary.getDiscountCents()));
+        } catch (IOException e) {
+            System.err.println("[BulkOrderPricer] Failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
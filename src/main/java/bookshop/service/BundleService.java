@@ -0,0 +1,69 @@
+package bookshop.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import bookshop.model.Bundle;
+import bookshop.model.Discount;
+import bookshop.util.Money;
+import bookshop.util.FileHandler;
+
+/**
+ * Loads bundle promotions from data/bundles.csv.
+ * Each row is {@code bundle_id,bundle_name,components} where components is
+ * {@code productId:quantity:price} entries separated by ';'. A missing file means no bundles.
+ */
+public class BundleService {
+    private static final String BUNDLES_FILE_PATH = "data/bundles.csv";
+    private final List<Bundle> bundles = new ArrayList<>();
+
+    public BundleService() throws IOException {
+        this(BUNDLES_FILE_PATH);
+    }
+
+    BundleService(String filePath) throws IOException {
+        loadBundles(filePath);
+    }
+
+    private void loadBundles(String filePath) throws IOException {
+        FileHandler.readCsv(filePath, true, row -> {
+            if (row.size() < 3) {
+                return;
+            }
+            List<Discount> components = parseComponents(row.get(2));
+            if (components.isEmpty()) {
+                System.err.println("[BundleService] Skipping bundle without valid components on line " + row.lineNumber());
+                return;
+            }
+            bundles.add(new Bundle(row.get(0), row.get(1), components));
+        });
+    }
+
+    static List<Discount> parseComponents(String s) {
+        List<Discount> components = new ArrayList<>();
+        if (s == null) {
+            return components;
+        }
+        for (String part : s.split(";")) {
+            String[] kv = part.trim().split(":");
+            if (kv.length != 3) {
+                continue;
+            }
+            try {
+                int quantity = Integer.parseInt(kv[1].trim());
+                long priceCents = Money.parse(kv[2]);
+                if (quantity > 0 && priceCents >= 0) {
+                    components.add(new Discount(kv[0].trim(), quantity, Money.toDouble(priceCents)));
+                }
+            } catch (NumberFormatException ignored) {
+                // skip malformed component
+            }
+        }
+        return components;
+    }
+
+    public List<Bundle> getAllBundles() {
+        return new ArrayList<>(bundles);
+    }
+}
@@ -0,0 +1,176 @@
+package bookshop.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import bookshop.model.Customer;
+import bookshop.model.Product;
+import bookshop.strategy.CartAdjustment;
+
+/**
+ * Priced cart returned by {@link BillingService#priceCart(Map, String)}.
+ * Holds the resolved products and customer, a breakdown per line and running totals.
+ * {@link BillingService#repriceLine(CartPricing, String, int)} updates a single line
+ * and adjusts the totals without touching the other lines; a re-priced line keeps its place.
+ * Cart-level discounts (bundles) are kept apart from the lines as adjustments.
+ * All amounts are in cents (see bookshop.util.Money).
+ */
+public final class CartPricing {
+    private final Customer customer;
+    private final Map<String, Line> lines = new LinkedHashMap<>();
+    // Kept in step with the lines so cart strategies get their inputs without a rebuild
+    private final Map<String, Product> products = new HashMap<>();
+    private final Map<String, Integer> quantities = new HashMap<>();
+    private long subtotalCents;
+    private long totalCents;
+    private List<CartAdjustment> adjustments = Collections.emptyList();
+    private long adjustmentCents;
+
+    CartPricing(Customer customer) {
+        this.customer = customer;
+    }
+
+    /**
+     * @return The customer the cart was priced for, or null for a guest.
+     */
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    /**
+     * @return The lines in the order they were first added (read-only).
+     */
+    public Collection<Line> getLines() {
+        return Collections.unmodifiableCollection(lines.values());
+    }
+
+    public Line getLine(String productId) {
+        return lines.get(productId);
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    /**
+     * @return Product id -> quantity for every line, in cart order.
+     */
+    public Map<String, Integer> getQuantities() {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (Line line : lines.values()) {
+            quantities.put(line.getProduct().getProductId(), line.getQuantity());
+        }
+        return quantities;
+    }
+
+    /**
+     * @return Cart-level discounts currently applied, e.g. matched bundles (read-only).
+     */
+    public List<CartAdjustment> getAdjustments() {
+        return adjustments;
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * @return Line discounts plus cart-level adjustments.
+     */
+    public long getDiscountCents() {
+        return subtotalCents - getTotalCents();
+    }
+
+    public long getTotalCents() {
+        return totalCents - adjustmentCents;
+    }
+
+    void setAdjustments(List<CartAdjustment> adjustments) {
+        long sum = 0;
+        for (CartAdjustment a : adjustments) {
+            sum += a.getDiscountCents();
+        }
+        // Never take the cart below zero
+        this.adjustmentCents = Math.min(sum, totalCents);
+        this.adjustments = Collections.unmodifiableList(adjustments);
+    }
+
+    void put(Line line) {
+        String productId = line.getProduct().getProductId();
+        Line old = lines.put(productId, line);
+        if (old != null) {
+            subtotalCents -= old.subtotalCents;
+            totalCents -= old.totalCents;
+        }
+        subtotalCents += line.subtotalCents;
+        totalCents += line.totalCents;
+        products.put(productId, line.getProduct());
+        quantities.put(productId, line.getQuantity());
+    }
+
+    void remove(String productId) {
+        Line old = lines.remove(productId);
+        if (old != null) {
+            subtotalCents -= old.subtotalCents;
+            totalCents -= old.totalCents;
+            products.remove(productId);
+            quantities.remove(productId);
+        }
+    }
+
+    // Read-only views for cart strategies
+    Map<String, Product> productsView() {
+        return Collections.unmodifiableMap(products);
+    }
+
+    Map<String, Integer> quantitiesView() {
+        return Collections.unmodifiableMap(quantities);
+    }
+
+    /**
+     * One priced cart line.
+     */
+    public static final class Line {
+        private final Product product;
+        private final int quantity;
+        private final long subtotalCents;
+        private final long totalCents;
+
+        Line(Product product, int quantity, long subtotalCents, long totalCents) {
+            this.product = product;
+            this.quantity = quantity;
+            this.subtotalCents = subtotalCents;
+            this.totalCents = totalCents;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * @return Real price times quantity, before any discount.
+         */
+        public long getSubtotalCents() {
+            return subtotalCents;
+        }
+
+        /**
+         * @return Everything the discount pipeline took off this line (bulk and customer tier).
+         */
+        public long getDiscountCents() {
+            return subtotalCents - totalCents;
+        }
+
+        public long getTotalCents() {
+            return totalCents;
+        }
+    }
+}
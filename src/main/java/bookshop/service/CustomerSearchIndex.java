@@ -0,0 +1,191 @@
+package bookshop.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import bookshop.model.Customer;
+
+/**
+ * Typeahead index over customers, maintained incrementally by CustomerService.
+ * Phones go into a digit trie (prefix match); names go into an n-gram index
+ * (substring match). Queries stop as soon as the requested number of matches is found,
+ * so their cost does not depend on how many customers are registered.
+ */
+class CustomerSearchIndex {
+    // Grams of length 1..MAX_GRAM are indexed; longer queries intersect via their rarest trigram
+    private static final int MAX_GRAM = 3;
+
+    private final PhoneNode phoneRoot = new PhoneNode();
+    private final Map<String, Set<Customer>> nameGrams = new HashMap<>();
+
+    synchronized void add(Customer c) {
+        String phone = digitsOf(c.getPhone());
+        if (!phone.isEmpty()) {
+            PhoneNode node = phoneRoot;
+            node.count++;
+            for (int i = 0; i < phone.length(); i++) {
+                int d = phone.charAt(i) - '0';
+                if (node.children[d] == null) {
+                    node.children[d] = new PhoneNode();
+                }
+                node = node.children[d];
+                node.count++;
+            }
+            node.customers.add(c);
+        }
+        for (String gram : gramsOf(nameKey(c.getName()))) {
+            nameGrams.computeIfAbsent(gram, k -> new LinkedHashSet<>()).add(c);
+        }
+    }
+
+    /**
+     * Removes a customer. Must be called before the customer's name or phone is changed,
+     * since the index is keyed by the values it was added with.
+     */
+    synchronized void remove(Customer c) {
+        String phone = digitsOf(c.getPhone());
+        PhoneNode leaf = phone.isEmpty() ? null : findPhoneNode(phone);
+        if (leaf != null && leaf.customers.remove(c)) {
+            PhoneNode node = phoneRoot;
+            node.count--;
+            for (int i = 0; i < phone.length(); i++) {
+                int d = phone.charAt(i) - '0';
+                PhoneNode child = node.children[d];
+                if (--child.count == 0) {
+                    node.children[d] = null; // prune the now-empty branch
+                    break;
+                }
+                node = child;
+            }
+        }
+        for (String gram : gramsOf(nameKey(c.getName()))) {
+            Set<Customer> posting = nameGrams.get(gram);
+            if (posting != null) {
+                posting.remove(c);
+                if (posting.isEmpty()) {
+                    nameGrams.remove(gram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds up to {@code limit} customers whose phone starts with the input
+     * or whose name contains it (case-insensitive). Phone matches come first.
+     */
+    synchronized List<Customer> search(String input, int limit) {
+        if (input == null || input.trim().isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        String query = input.trim();
+        Set<Customer> seen = new LinkedHashSet<>();
+
+        if (isDigits(query)) {
+            PhoneNode node = findPhoneNode(query);
+            if (node != null) {
+                collectPhones(node, seen, limit);
+            }
+        }
+
+        String key = nameKey(query);
+        if (seen.size() < limit) {
+            if (key.length() <= MAX_GRAM) {
+                // The query is itself an indexed gram: every posting is a match
+                Set<Customer> posting = nameGrams.get(key);
+                if (posting != null) {
+                    for (Customer c : posting) {
+                        if (seen.size() >= limit) break;
+                        seen.add(c);
+                    }
+                }
+            } else {
+                // Scan the smallest trigram posting list and verify the full substring
+                Set<Customer> smallest = null;
+                for (int i = 0; i + MAX_GRAM <= key.length(); i++) {
+                    Set<Customer> posting = nameGrams.get(key.substring(i, i + MAX_GRAM));
+                    if (posting == null) {
+                        smallest = null;
+                        break;
+                    }
+                    if (smallest == null || posting.size() < smallest.size()) {
+                        smallest = posting;
+                    }
+                }
+                if (smallest != null) {
+                    for (Customer c : smallest) {
+                        if (seen.size() >= limit) break;
+                        if (nameKey(c.getName()).contains(key)) {
+                            seen.add(c);
+                        }
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(seen);
+    }
+
+    private void collectPhones(PhoneNode node, Set<Customer> out, int limit) {
+        for (Customer c : node.customers) {
+            if (out.size() >= limit) return;
+            out.add(c);
+        }
+        for (PhoneNode child : node.children) {
+            if (out.size() >= limit) return;
+            if (child != null) {
+                collectPhones(child, out, limit);
+            }
+        }
+    }
+
+    private PhoneNode findPhoneNode(String digits) {
+        PhoneNode node = phoneRoot;
+        for (int i = 0; i < digits.length() && node != null; i++) {
+            node = node.children[digits.charAt(i) - '0'];
+        }
+        return node;
+    }
+
+    private static Set<String> gramsOf(String key) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= key.length(); i++) {
+                grams.add(key.substring(i, i + n));
+            }
+        }
+        return grams;
+    }
+
+    private static String nameKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    // Phones are indexed by their digits only (e.g. "077-123 4567" -> "0771234567")
+    private static String digitsOf(String phone) {
+        if (phone == null) return "";
+        StringBuilder sb = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char ch = phone.charAt(i);
+            if (ch >= '0' && ch <= '9') sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch < '0' || ch > '9') return false;
+        }
+        return true;
+    }
+
+    private static final class PhoneNode {
+        final PhoneNode[] children = new PhoneNode[10];
+        final Set<Customer> customers = new LinkedHashSet<>(1);
+        int count; // customers in this subtree
+    }
+}
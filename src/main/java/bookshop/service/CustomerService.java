@@ -2,6 +2,7 @@ package bookshop.service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import bookshop.model.Customer;
@@ -13,6 +14,10 @@ import bookshop.util.FileHandler;
 public class CustomerService {
     private static final String CUSTOMERS_FILE_PATH = "data/customers.csv";
     private List<Customer> customers;
+    // Phone-prefix and name n-gram index for typeahead, kept in step with every mutation
+    private final CustomerSearchIndex searchIndex = new CustomerSearchIndex();
+    // Sort orders for the admin table; built on first use, dropped on every change
+    private SortIndex<Customer> sortIndex;
 
     public CustomerService() throws IOException {
         this.customers = new ArrayList<>();
@@ -20,15 +25,12 @@ public class CustomerService {
     }
 
     private void loadCustomers() throws IOException {
-        List<String> lines = FileHandler.readCsv(CUSTOMERS_FILE_PATH);
-        // Skip the header row
-        for (int i = 1; i < lines.size(); i++) {
-            String line = lines.get(i);
-            String[] columns = line.split(",");
-            if (columns.length >= 3) {
-                String customerId = columns[0].trim();
-                String customerName = columns[1].trim();
-                String customerType = columns[2].trim();
+        // Stream rows straight from the file, skipping the header row
+        FileHandler.readCsv(CUSTOMERS_FILE_PATH, true, row -> {
+            if (row.size() >= 3) {
+                String customerId = row.get(0);
+                String customerName = row.get(1);
+                String customerType = row.get(2);
                 Customer customer;
                 if ("VIP".equalsIgnoreCase(customerType)) {
                     customer = new VIPCustomer(customerId, customerName);
@@ -36,19 +38,65 @@ public class CustomerService {
                     customer = new RegularCustomer(customerId, customerName);
                 }
                 // optional phone column
-                if (columns.length >= 4) {
-                    String phone = columns[3].trim();
-                    customer.setPhone(phone);
+                if (row.size() >= 4) {
+                    customer.setPhone(row.get(3));
                 }
                 customers.add(customer);
+                searchIndex.add(customer);
             }
-        }
+        });
     }
 
     public List<Customer> getAllCustomers() {
         return new ArrayList<>(customers);
     }
 
+    /**
+     * Typeahead lookup: customers whose phone starts with the input or whose name
+     * contains it (case-insensitive), phone matches first.
+     * @param input The text typed so far.
+     * @param limit Maximum number of customers to return.
+     * @return Up to {@code limit} matching customers.
+     */
+    public List<Customer> searchCustomers(String input, int limit) {
+        return searchIndex.search(input, limit);
+    }
+
+    /**
+     * Sort orders for {@link #queryCustomers}.
+     */
+    public enum SortKey {
+        ID((a, b) -> PriceChange.compareIds(a.getCustomerId(), b.getCustomerId())),
+        NAME(Comparator.comparing(c -> String.valueOf(c.getName()), String.CASE_INSENSITIVE_ORDER)),
+        TYPE(Comparator.comparing(Customer::getType)),
+        PHONE(Comparator.comparing(c -> c.getPhone() == null ? "" : c.getPhone()));
+
+        private final Comparator<Customer> comparator;
+
+        SortKey(Comparator<Customer> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    /**
+     * Customers for a page of the admin table. Each sort order is computed once per change
+     * to the customer list; the filter uses the typeahead index (phone prefix or name part).
+     * @param filter Free text, or null/blank for every customer.
+     * @param sortKey Sort order, or null for file order.
+     * @param descending true to reverse the order.
+     * @return A read-only view; rows are read only when asked for.
+     */
+    public synchronized QueryResult<Customer> queryCustomers(String filter, SortKey sortKey, boolean descending) {
+        if (sortIndex == null) {
+            sortIndex = new SortIndex<>(customers);
+        }
+        Comparator<Customer> comparator = sortKey == null ? null : sortKey.comparator;
+        if (filter == null || filter.trim().isEmpty()) {
+            return sortIndex.all(sortKey, comparator, descending);
+        }
+        return sortIndex.matching(searchIndex.search(filter, Integer.MAX_VALUE), sortKey, comparator, descending);
+    }
+
     public Customer findCustomerById(String id) {
         for (Customer customer : customers) {
             if (customer.getCustomerId().equals(id)) {
@@ -76,7 +124,7 @@ public class CustomerService {
         FileHandler.writeCsv(CUSTOMERS_FILE_PATH, lines);
     }
 
-    public void addCustomer(Customer customer) throws IOException {
+    public synchronized void addCustomer(Customer customer) throws IOException {
         validateCustomer(customer);
         
         if (customer.getCustomerId() == null || customer.getCustomerId().trim().isEmpty()) {
@@ -91,6 +139,8 @@ public class CustomerService {
             FileHandler.escapeCsvField(phone));
         FileHandler.appendLine(CUSTOMERS_FILE_PATH, line);
         this.customers.add(customer);
+        searchIndex.add(customer);
+        sortIndex = null;
     }
 
     /**
@@ -119,11 +169,14 @@ public class CustomerService {
         return String.format("c%02d", maxId + 1);
     }
 
-    public void updateCustomer(Customer customer) throws IOException {
+    public synchronized void updateCustomer(Customer customer) throws IOException {
         validateCustomer(customer);
         
         Customer existing = findCustomerById(customer.getCustomerId());
         if (existing != null) {
+            sortIndex = null;
+            // Drop the old name/phone from the search index before they change
+            searchIndex.remove(existing);
             // Name and phone can be updated directly
             existing.setName(customer.getName());
             existing.setPhone(customer.getPhone());
@@ -143,13 +196,23 @@ public class CustomerService {
                         break;
                     }
                 }
+                searchIndex.add(replacement);
+            } else {
+                searchIndex.add(existing);
             }
             saveAllCustomers();
         }
     }
 
-    public void deleteCustomer(String customerId) throws IOException {
-        customers.removeIf(c -> c.getCustomerId().equals(customerId));
+    public synchronized void deleteCustomer(String customerId) throws IOException {
+        sortIndex = null;
+        customers.removeIf(c -> {
+            if (c.getCustomerId().equals(customerId)) {
+                searchIndex.remove(c);
+                return true;
+            }
+            return false;
+        });
         saveAllCustomers();
     }
 
@@ -1,24 +1,185 @@
 package bookshop.service;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import bookshop.model.Customer;
 import bookshop.model.Product;
+import bookshop.util.Money;
 
 // Team Member C: Implement the DiscountService for updating product discounts.
+/**
+ * Edits discount rules on a shared, long-lived catalog and answers effective unit prices
+ * from a precomputed cache keyed by (product, quantity tier, customer type).
+ *
+ * Every edit made here drops the cache entry of that one product; nothing else is
+ * recomputed. Entries also check the product's pricing version, so changes made
+ * elsewhere (a bulk reprice, a promotion starting) are never served stale. Billing
+ * caches check the same version, so they need no notification either.
+ * Edits change the shared Product in place and are undone if they cannot be logged.
+ */
 public class DiscountService {
+    private final ProductService productService;
+    private final Map<String, EffectivePrices> cache = new ConcurrentHashMap<>();
 
     /**
-     * Adds a new discount rule to a product and overwrites the CSV file.
-     * This is a complex read-modify-overwrite operation.
+     * @param productService The catalog to edit; shared with the rest of the screen or job.
+     */
+    public DiscountService(ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Adds a new discount rule to a product and records the change in the product log.
      */
     public void addDiscount(Product product, int quantity, double price) throws IOException {
-        // Load products, find the product and update its discount rules, then save all products
-        ProductService ps = new ProductService();
-        Product existing = ps.findProductById(product.getProductId());
+        addDiscountCents(product.getProductId(), quantity, Money.ofDouble(price));
+    }
+
+    /**
+     * Adds or replaces the rule for {@code quantity} and records the change in the product log.
+     */
+    public void addDiscountCents(String productId, int quantity, long priceCents) throws IOException {
+        Product existing = require(productId);
+        SavedRules previous = new SavedRules(existing);
+        existing.setDiscountCents(quantity, priceCents);
+        persist(existing, previous);
+    }
+
+    /**
+     * Removes the rule for {@code quantity} and records the change in the product log.
+     */
+    public void removeDiscount(String productId, int quantity) throws IOException {
+        Product existing = require(productId);
+        SavedRules previous = new SavedRules(existing);
+        existing.removeDiscount(quantity);
+        persist(existing, previous);
+    }
+
+    /**
+     * Removes every rule of the product and records the change in the product log.
+     */
+    public void clearDiscounts(String productId) throws IOException {
+        Product existing = require(productId);
+        SavedRules previous = new SavedRules(existing);
+        existing.clearDiscounts();
+        persist(existing, previous);
+    }
+
+    // Logs the edited product; if that fails, its rules are put back so memory matches the log
+    private void persist(Product edited, SavedRules previous) throws IOException {
+        try {
+            productService.updateProduct(edited);
+        } catch (IOException e) {
+            previous.restore(edited);
+            throw e;
+        } finally {
+            cache.remove(edited.getProductId());
+        }
+    }
+
+    private Product require(String productId) throws IOException {
+        Product existing = productService.findProductById(productId);
         if (existing == null) {
-            throw new IOException("Product not found: " + product.getProductId());
+            throw new IOException("Product not found: " + productId);
+        }
+        return existing;
+    }
+
+    /**
+     * Unit price after bulk tiers and the customer's rate, from the cache.
+     * @param customer The customer, or null for a guest.
+     * @return The price in cents, or -1 if the product is unknown.
+     */
+    public long getEffectiveUnitPriceCents(String productId, int quantity, Customer customer) {
+        Product product = productService.findProductById(productId);
+        if (product == null) {
+            return -1;
+        }
+        EffectivePrices prices = cache.get(productId);
+        if (prices == null || !prices.isCurrent(product)) {
+            prices = new EffectivePrices(product);
+            cache.put(productId, prices);
+        }
+        return prices.unitPriceCents(quantity, customer);
+    }
+
+    // Per-tier effective unit prices of one product, one row per customer type
+    private static final class EffectivePrices {
+        final Product product;
+        final int version;
+        final int[] breaks;
+        final long[] listPrices; // slot 0: below the first break; slot i: from breaks[i - 1]
+        final Map<String, TierPrices> byCustomerType = new ConcurrentHashMap<>();
+
+        EffectivePrices(Product product) {
+            // Version first: a change made while building forces a rebuild next time
+            this.version = product.getPricingVersion();
+            this.product = product;
+            this.breaks = product.getPriceBreaks();
+            this.listPrices = new long[breaks.length + 1];
+            listPrices[0] = product.getRealPriceCents();
+            for (int i = 0; i < breaks.length; i++) {
+                listPrices[i + 1] = product.getUnitPriceCents(breaks[i]);
+            }
+        }
+
+        boolean isCurrent(Product p) {
+            return product == p && version == p.getPricingVersion();
+        }
+
+        long unitPriceCents(int quantity, Customer customer) {
+            int i = Arrays.binarySearch(breaks, quantity);
+            int slot = i >= 0 ? i + 1 : -i - 1;
+            double rate = customer == null ? 0 : customer.getBaseDiscountRate();
+            if (rate == 0) {
+                return listPrices[slot];
+            }
+            String type = customer.getType() == null ? "" : customer.getType();
+            TierPrices tier = byCustomerType.get(type);
+            if (tier == null || Double.compare(tier.rate, rate) != 0) {
+                tier = new TierPrices(rate, listPrices);
+                byCustomerType.put(type, tier);
+            }
+            return tier.prices[slot];
+        }
+    }
+
+    // A product's own discount rules, as they were before an edit
+    private static final class SavedRules {
+        final int[] thresholds;
+        final long[] pricesCents;
+
+        SavedRules(Product product) {
+            int count = product.getDiscountTierCount();
+            thresholds = new int[count];
+            pricesCents = new long[count];
+            for (int i = 0; i < count; i++) {
+                thresholds[i] = product.getDiscountThreshold(i);
+                pricesCents[i] = product.getDiscountPriceCents(i);
+            }
+        }
+
+        void restore(Product product) {
+            product.clearDiscounts();
+            for (int i = 0; i < thresholds.length; i++) {
+                product.setDiscountCents(thresholds[i], pricesCents[i]);
+            }
+        }
+    }
+
+    private static final class TierPrices {
+        final double rate;
+        final long[] prices;
+
+        TierPrices(double rate, long[] listPrices) {
+            this.rate = rate;
+            this.prices = new long[listPrices.length];
+            for (int i = 0; i < listPrices.length; i++) {
+                prices[i] = listPrices[i] - Money.percentOf(listPrices[i], rate);
+            }
         }
-        existing.setDiscount(quantity, price);
-        ps.saveAllProducts();
     }
 }
@@ -0,0 +1,409 @@
+package bookshop.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import bookshop.model.Customer;
+import bookshop.model.Product;
+import bookshop.model.RegularCustomer;
+import bookshop.model.VIPCustomer;
+import bookshop.strategy.DiscountStrategy;
+import bookshop.util.FileHandler;
+import bookshop.util.Money;
+
+/**
+ * What-if tool for discount changes: replays past sales against the current rules and
+ * against a candidate set of rules (and optionally a different strategy pipeline),
+ * and reports the revenue difference per product and in total.
+ *
+ * Sales come from the saved bills in bills/ or from an in-memory ledger. Either way the
+ * work is split into partitions on a fork-join pool; each partition accumulates its own
+ * per-product totals, which are merged at the end, so workers share nothing while running.
+ */
+public class DiscountSimulator {
+    // Leaf size: bills are small files, ledger lines are cheap
+    private static final int BILLS_PER_PARTITION = 32;
+    private static final int SALES_PER_PARTITION = 8192;
+
+    // Bills only record the customer's type, which is all pricing needs
+    private static final Customer VIP = new VIPCustomer("", "");
+    private static final Customer REGULAR = new RegularCustomer("", "");
+
+    private final Map<String, Product> productsByName = new HashMap<>();
+    private final BillingService baseline;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param catalog The current products; their rules are the baseline.
+     * @param pool Pool the partitions run on.
+     */
+    public DiscountSimulator(List<Product> catalog, ForkJoinPool pool) {
+        for (Product p : catalog) {
+            productsByName.put(nameKey(p.getName()), p);
+        }
+        this.baseline = new BillingService(null, null);
+        this.pool = pool;
+    }
+
+    /**
+     * A past sale: what was bought, how many, and the customer's type (null for a guest).
+     */
+    public static final class Sale {
+        final String productName;
+        final int quantity;
+        final String customerType;
+
+        public Sale(String productName, int quantity, String customerType) {
+            this.productName = productName;
+            this.quantity = quantity;
+            this.customerType = customerType;
+        }
+    }
+
+    /**
+     * Replays every bill in the given files.
+     * @param candidateRules Product id -> discount rules to try. Products not listed keep their current rules.
+     * @param candidateStrategies Pipeline to try, or null to keep the standard one.
+     */
+    public Report simulateBills(List<Path> billFiles, Map<String, Map<Integer, Double>> candidateRules,
+                                List<DiscountStrategy> candidateStrategies) {
+        Scenario scenario = new Scenario(candidateRules, candidateStrategies);
+        return pool.invoke(new Partition<>(billFiles, 0, billFiles.size(), BILLS_PER_PARTITION, scenario,
+                (file, sink) -> {
+                    try {
+                        return parseBill(Files.readAllLines(file, StandardCharsets.UTF_8), sink);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+    }
+
+    /**
+     * Replays a sales ledger held in memory.
+     * @see #simulateBills(List, Map, List)
+     */
+    public Report simulate(List<Sale> sales, Map<String, Map<Integer, Double>> candidateRules,
+                           List<DiscountStrategy> candidateStrategies) {
+        Scenario scenario = new Scenario(candidateRules, candidateStrategies);
+        return pool.invoke(new Partition<>(sales, 0, sales.size(), SALES_PER_PARTITION, scenario,
+                (sale, sink) -> {
+                    sink.accept(sale);
+                    return true;
+                }));
+    }
+
+    /**
+     * @return Every Bill_*.txt file in the directory, or an empty list if it does not exist.
+     */
+    public static List<Path> listBills(String billsDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Path dir = Paths.get(billsDir);
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "Bill_*.txt")) {
+            for (Path p : stream) {
+                files.add(p);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * Extracts the sales from one bill as written by the cashier screen:
+     * a "Customer: name (TYPE)" line, then for every item a "name   xQTY" line
+     * followed by indented price lines.
+     * @return false, with no sales passed on, for a bill in the old format
+     *         ("Date & Time:" header, "Qty: N x Rs. P" lines), which records no customer type.
+     */
+    static boolean parseBill(List<String> lines, Consumer<Sale> sink) {
+        List<Sale> sales = new ArrayList<>();
+        String customerType = null;
+        for (String line : lines) {
+            if (line.startsWith("Date & Time: ") || line.startsWith("  Qty: ")) {
+                return false;
+            }
+            if (line.startsWith("Customer: ")) {
+                int open = line.lastIndexOf('(');
+                int close = line.lastIndexOf(')');
+                customerType = open >= 0 && close > open ? line.substring(open + 1, close).trim() : null;
+                continue;
+            }
+            if (line.isEmpty() || line.startsWith(" ") || line.startsWith("=") || line.startsWith("-")
+                    || line.startsWith("Date: ") || line.startsWith("GRAND TOTAL")) {
+                continue;
+            }
+            int x = line.lastIndexOf(" x");
+            if (x <= 0) {
+                continue;
+            }
+            int qty = parseQuantity(line, x + 2);
+            if (qty > 0) {
+                sales.add(new Sale(line.substring(0, x).trim(), qty, customerType));
+            }
+        }
+        sales.forEach(sink);
+        return true;
+    }
+
+    private static int parseQuantity(String line, int from) {
+        if (from >= line.length() || line.length() - from > 9) {
+            return -1;
+        }
+        int v = 0;
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static String nameKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static Customer customerFor(String type) {
+        if (type == null) return null;
+        if (VIPCustomer.TYPE.equalsIgnoreCase(type)) return VIP;
+        if (RegularCustomer.TYPE.equalsIgnoreCase(type)) return REGULAR;
+        return null;
+    }
+
+    // Candidate side: the same products with the rules under test, priced by its own pipeline
+    private final class Scenario {
+        final Map<Product, Product> candidates = new HashMap<>();
+        final BillingService billing;
+
+        Scenario(Map<String, Map<Integer, Double>> rules, List<DiscountStrategy> strategies) {
+            this.billing = strategies == null ? new BillingService(null, null) : new BillingService(null, null, strategies);
+            for (Product p : productsByName.values()) {
+                Map<Integer, Double> r = rules == null ? null : rules.get(p.getProductId());
+                Product c = new Product(p.getProductId(), p.getName(), 0.0, r != null ? r : p.getDiscountRules(), p.getQuantity());
+                c.setRealPriceCents(p.getRealPriceCents());
+                candidates.put(p, c);
+            }
+        }
+    }
+
+    private interface SaleSource<T> {
+        // false if the item could not be read as sales at all
+        boolean salesOf(T item, Consumer<Sale> sink);
+    }
+
+    private final class Partition<T> extends RecursiveTask<Report> {
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final Scenario scenario;
+        private final SaleSource<T> source;
+
+        Partition(List<T> items, int from, int to, int leafSize, Scenario scenario, SaleSource<T> source) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.scenario = scenario;
+            this.source = source;
+        }
+
+        @Override
+        protected Report compute() {
+            if (to - from <= leafSize) {
+                Report report = new Report();
+                for (int i = from; i < to; i++) {
+                    if (!source.salesOf(items.get(i), sale -> replay(sale, report))) {
+                        report.skippedBills++;
+                    }
+                }
+                return report;
+            }
+            int mid = (from + to) >>> 1;
+            Partition<T> left = new Partition<>(items, from, mid, leafSize, scenario, source);
+            left.fork();
+            Report right = new Partition<>(items, mid, to, leafSize, scenario, source).compute();
+            return left.join().merge(right);
+        }
+
+        private void replay(Sale sale, Report report) {
+            Product product = productsByName.get(nameKey(sale.productName));
+            if (product == null) {
+                report.skippedSales++;
+                return;
+            }
+            Customer customer = customerFor(sale.customerType);
+            long before = baseline.priceLine(product, sale.quantity, customer).getTotalCents();
+            long after = scenario.billing.priceLine(scenario.candidates.get(product), sale.quantity, customer).getTotalCents();
+            report.add(product, sale.quantity, before, after);
+        }
+    }
+
+    /**
+     * Revenue under the current rules versus the candidate rules. Amounts are in cents.
+     */
+    public static final class Report {
+        private final Map<String, SkuImpact> skus = new TreeMap<>();
+        private int skippedSales;
+        private int skippedBills;
+
+        void add(Product p, int quantity, long baselineCents, long candidateCents) {
+            SkuImpact s = skus.computeIfAbsent(p.getProductId(), id -> new SkuImpact(id, p.getName()));
+            s.sales++;
+            s.units += quantity;
+            s.baselineCents += baselineCents;
+            s.candidateCents += candidateCents;
+        }
+
+        Report merge(Report other) {
+            for (SkuImpact o : other.skus.values()) {
+                SkuImpact s = skus.computeIfAbsent(o.productId, id -> new SkuImpact(id, o.name));
+                s.sales += o.sales;
+                s.units += o.units;
+                s.baselineCents += o.baselineCents;
+                s.candidateCents += o.candidateCents;
+            }
+            skippedSales += other.skippedSales;
+            skippedBills += other.skippedBills;
+            return this;
+        }
+
+        /**
+         * @return One entry per product that appears in the replayed sales, ordered by id.
+         */
+        public Collection<SkuImpact> getSkus() {
+            return Collections.unmodifiableCollection(skus.values());
+        }
+
+        public SkuImpact getSku(String productId) {
+            return skus.get(productId);
+        }
+
+        /**
+         * @return Sales that could not be replayed because the product no longer exists.
+         */
+        public int getSkippedSales() {
+            return skippedSales;
+        }
+
+        /**
+         * @return Bills that were not replayed because they are in the old format.
+         */
+        public int getSkippedBills() {
+            return skippedBills;
+        }
+
+        public long getBaselineCents() {
+            long total = 0;
+            for (SkuImpact s : skus.values()) total += s.baselineCents;
+            return total;
+        }
+
+        public long getCandidateCents() {
+            long total = 0;
+            for (SkuImpact s : skus.values()) total += s.candidateCents;
+            return total;
+        }
+
+        public long getDeltaCents() {
+            return getCandidateCents() - getBaselineCents();
+        }
+    }
+
+    public static final class SkuImpact {
+        private final String productId;
+        private final String name;
+        private int sales;
+        private long units;
+        private long baselineCents;
+        private long candidateCents;
+
+        SkuImpact(String productId, String name) {
+            this.productId = productId;
+            this.name = name;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSales() {
+            return sales;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public long getBaselineCents() {
+            return baselineCents;
+        }
+
+        public long getCandidateCents() {
+            return candidateCents;
+        }
+
+        public long getDeltaCents() {
+            return candidateCents - baselineCents;
+        }
+    }
+
+    /**
+     * Usage: {@code DiscountSimulator <candidate-rules.csv>} where each row is
+     * {@code product_id,"qty:price;qty:price"}. Replays bills/ and prints the impact.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: DiscountSimulator <candidate-rules.csv>");
+            System.exit(2);
+        }
+        try {
+            Map<String, Map<Integer, Double>> candidate = new HashMap<>();
+            FileHandler.readCsv(args[0], true, row ->
+                    candidate.put(row.get(0), FileHandler.parseDiscountString(row.get(1))));
+            DiscountSimulator simulator = new DiscountSimulator(ProductService.shared().getAllProducts(), ForkJoinPool.commonPool());
+
+            long start = System.nanoTime();
+            Report report = simulator.simulateBills(listBills("bills"), candidate, null);
+            long ms = (System.nanoTime() - start) / 1_000_000;
+
+            StringBuilder sb = new StringBuilder("product_id,name,units,baseline,candidate,delta\n");
+            for (SkuImpact s : report.getSkus()) {
+                sb.append(s.getProductId()).append(',').append(FileHandler.escapeCsvField(s.getName())).append(',').append(s.getUnits()).append(',');
+                Money.appendTo(sb, s.getBaselineCents()).append(',');
+                Money.appendTo(sb, s.getCandidateCents()).append(',');
+                Money.appendTo(sb, s.getDeltaCents()).append('\n');
+            }
+            System.out.print(sb);
+            System.err.println("[DiscountSimulator] Revenue delta " + Money.format(report.getDeltaCents())
+                    + " (" + report.getSkippedSales() + " sales and " + report.getSkippedBills()
+                    + " old-format bills skipped) in " + ms + " ms");
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("[DiscountSimulator] Failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package bookshop.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiting for password checks: one bucket per username plus one
+ * global bucket, so neither a stuck scanner on one account nor a spray across accounts
+ * can keep BCrypt running flat out.
+ *
+ * Each bucket is a single AtomicLong (the time at which it will be full again) updated
+ * with compare-and-set, so checks never lock. At most {@link #MAX_TRACKED_USERS} per-user
+ * buckets are kept; full buckets are dropped first, since a fresh one is equivalent, and
+ * past that limit the remaining users share one overflow bucket.
+ */
+public class LoginThrottle {
+    static final int MAX_TRACKED_USERS = 1024;
+
+    private final LongSupplier nanoClock;
+    private final int userBurst;
+    private final long userIntervalNanos;
+    private final Bucket global;
+    private final Bucket overflow;
+    private final Map<String, Bucket> perUser = new ConcurrentHashMap<>();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedByUser = new LongAdder();
+    private final LongAdder rejectedGlobally = new LongAdder();
+
+    /**
+     * Defaults: 5 attempts in a row per user, then one every 10 seconds;
+     * 20 in a row overall (a shift change), then 5 per second.
+     */
+    public LoginThrottle() {
+        this(5, 0.1, 20, 5.0);
+    }
+
+    /**
+     * @param userBurst Attempts one user can make back to back.
+     * @param userPerSecond Rate at which a user's attempts come back.
+     * @param globalBurst Attempts all users together can make back to back.
+     * @param globalPerSecond Rate at which global attempts come back (caps BCrypt CPU).
+     */
+    public LoginThrottle(int userBurst, double userPerSecond, int globalBurst, double globalPerSecond) {
+        this(userBurst, userPerSecond, globalBurst, globalPerSecond, System::nanoTime);
+    }
+
+    LoginThrottle(int userBurst, double userPerSecond, int globalBurst, double globalPerSecond, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.userBurst = userBurst;
+        this.userIntervalNanos = intervalNanos(userPerSecond);
+        long now = nanoClock.getAsLong();
+        this.global = new Bucket(globalBurst, intervalNanos(globalPerSecond), now);
+        this.overflow = new Bucket(userBurst, userIntervalNanos, now);
+    }
+
+    private static long intervalNanos(double perSecond) {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+    }
+
+    /**
+     * Takes one token from the user's bucket and one from the global bucket.
+     * @return 0 if the attempt may go ahead, otherwise the nanoseconds until it could.
+     */
+    public long tryAcquire(String username) {
+        long now = nanoClock.getAsLong();
+        Bucket user = bucketFor(username == null ? "" : username, now);
+        long wait = user.tryAcquire(now);
+        if (wait > 0) {
+            rejectedByUser.increment();
+            return wait;
+        }
+        wait = global.tryAcquire(now);
+        if (wait > 0) {
+            user.refund();
+            rejectedGlobally.increment();
+            return wait;
+        }
+        accepted.increment();
+        return 0;
+    }
+
+    private Bucket bucketFor(String username, long now) {
+        Bucket bucket = perUser.get(username);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (perUser.size() >= MAX_TRACKED_USERS) {
+            perUser.values().removeIf(b -> b.isFull(now));
+            if (perUser.size() >= MAX_TRACKED_USERS) {
+                return overflow;
+            }
+        }
+        return perUser.computeIfAbsent(username, k -> new Bucket(userBurst, userIntervalNanos, now));
+    }
+
+    public long getAcceptedAttempts() {
+        return accepted.sum();
+    }
+
+    /**
+     * @return Attempts refused by either limit.
+     */
+    public long getRejectedAttempts() {
+        return rejectedByUser.sum() + rejectedGlobally.sum();
+    }
+
+    public long getRejectedByUserLimit() {
+        return rejectedByUser.sum();
+    }
+
+    public long getRejectedByGlobalLimit() {
+        return rejectedGlobally.sum();
+    }
+
+    /**
+     * @return Per-user buckets currently held (at most MAX_TRACKED_USERS).
+     */
+    public int getTrackedUsers() {
+        return perUser.size();
+    }
+
+    /**
+     * Token bucket as GCRA: {@code tat} is when the bucket will be full again.
+     * An attempt is allowed if, after it, the bucket would still hold at least zero tokens.
+     */
+    private static final class Bucket {
+        final long interval;
+        final long tolerance; // (burst - 1) intervals may be borrowed in advance
+        final AtomicLong tat;
+
+        Bucket(int burst, long interval, long now) {
+            this.interval = interval;
+            this.tolerance = Math.max(0, burst - 1) * interval;
+            this.tat = new AtomicLong(now);
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                long current = tat.get();
+                long start = Math.max(current, now);
+                long wait = start - tolerance - now;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (tat.compareAndSet(current, start + interval)) {
+                    return 0;
+                }
+            }
+        }
+
+        void refund() {
+            tat.addAndGet(-interval);
+        }
+
+        boolean isFull(long now) {
+            return tat.get() - now <= 0;
+        }
+    }
+}
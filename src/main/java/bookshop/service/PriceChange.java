@@ -0,0 +1,129 @@
+package bookshop.service;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import bookshop.model.Product;
+import bookshop.util.Money;
+
+/**
+ * A bulk price change for {@link ProductService#repriceProducts(PriceChange)}: how prices move
+ * (by a percentage or a fixed amount), whether discount tiers move with them, and which
+ * products are affected. Immutable; each {@code with...}/{@code for...} call returns a copy.
+ *
+ * Example: {@code PriceChange.percent(10).withTiers(true).forNamePattern("oxford")}
+ */
+public final class PriceChange {
+    private final boolean percent;
+    private final double percentage;
+    private final long amountCents;
+    private final boolean rescaleTiers;
+    private final Predicate<Product> selector;
+
+    private PriceChange(boolean percent, double percentage, long amountCents,
+                        boolean rescaleTiers, Predicate<Product> selector) {
+        this.percent = percent;
+        this.percentage = percentage;
+        this.amountCents = amountCents;
+        this.rescaleTiers = rescaleTiers;
+        this.selector = selector;
+    }
+
+    /**
+     * @param percentage e.g. 10 for +10%, -5 for -5%.
+     */
+    public static PriceChange percent(double percentage) {
+        return new PriceChange(true, percentage, 0, false, p -> true);
+    }
+
+    /**
+     * @param amountCents Amount added to every price (negative to lower prices).
+     */
+    public static PriceChange absolute(long amountCents) {
+        return new PriceChange(false, 0, amountCents, false, p -> true);
+    }
+
+    /**
+     * @param rescaleTiers true to apply the same change to every discount tier price.
+     */
+    public PriceChange withTiers(boolean rescaleTiers) {
+        return new PriceChange(percent, percentage, amountCents, rescaleTiers, selector);
+    }
+
+    /**
+     * Restricts the change to ids between {@code fromId} and {@code toId} inclusive,
+     * comparing the numeric part so that p9 comes before p10.
+     * @param fromId Lowest id, or null for no lower bound.
+     * @param toId Highest id, or null for no upper bound.
+     */
+    public PriceChange forIdRange(String fromId, String toId) {
+        return and(p -> (fromId == null || compareIds(p.getProductId(), fromId) >= 0)
+                && (toId == null || compareIds(p.getProductId(), toId) <= 0));
+    }
+
+    /**
+     * Restricts the change to products whose name contains a match of the regular
+     * expression (case-insensitive).
+     */
+    public PriceChange forNamePattern(String regex) {
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return and(p -> p.getName() != null && pattern.matcher(p.getName()).find());
+    }
+
+    /**
+     * Restricts the change to products whose real price is within the band, inclusive.
+     */
+    public PriceChange forPriceBand(long minCents, long maxCents) {
+        return and(p -> p.getRealPriceCents() >= minCents && p.getRealPriceCents() <= maxCents);
+    }
+
+    private PriceChange and(Predicate<Product> more) {
+        return new PriceChange(percent, percentage, amountCents, rescaleTiers, selector.and(more));
+    }
+
+    boolean selects(Product product) {
+        return selector.test(product);
+    }
+
+    boolean rescalesTiers() {
+        return rescaleTiers;
+    }
+
+    /**
+     * @return The new price for an old one, never below zero.
+     */
+    long apply(long priceCents) {
+        long changed = percent
+                ? priceCents + Money.percentOf(priceCents, percentage / 100.0)
+                : priceCents + amountCents;
+        return Math.max(0, changed);
+    }
+
+    static int compareIds(String a, String b) {
+        long na = idNumber(a);
+        long nb = idNumber(b);
+        if (na >= 0 && nb >= 0) {
+            return Long.compare(na, nb);
+        }
+        return String.valueOf(a).compareToIgnoreCase(String.valueOf(b));
+    }
+
+    // The digits of an id read as one number ("p01" -> 1), or -1 if there are none or too many
+    private static long idNumber(String id) {
+        if (id == null) {
+            return -1;
+        }
+        long n = 0;
+        int digits = 0;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 18) {
+                    return -1;
+                }
+                n = n * 10 + (c - '0');
+            }
+        }
+        return digits == 0 ? -1 : n;
+    }
+}
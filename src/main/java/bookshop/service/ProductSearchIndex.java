@@ -0,0 +1,214 @@
+package bookshop.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import bookshop.model.Product;
+
+/**
+ * Inverted token index over product names and ids for the cashier search box.
+ * Names and ids are split into case-folded alphanumeric tokens; every query token
+ * must match the start of some token of the product ("gel pe" finds "Gel Pen").
+ * Results are ranked: exact token matches score higher than prefix matches.
+ *
+ * The index is built once and then kept current with {@link #sync(List)}, which
+ * only touches products that were added, removed or renamed.
+ */
+public class ProductSearchIndex {
+    private final NavigableMap<String, Set<String>> postings = new TreeMap<>();
+    private final Map<String, Product> productsById = new HashMap<>();
+    private final Map<String, String[]> tokensById = new HashMap<>();
+
+    /**
+     * Brings the index in line with a freshly loaded catalog.
+     * @return The number of products that had to be (re)indexed or removed.
+     */
+    public synchronized int sync(List<Product> catalog) {
+        int changes = 0;
+        Set<String> present = new HashSet<>(catalog.size() * 2);
+        for (Product p : catalog) {
+            String id = p.getProductId();
+            present.add(id);
+            Product indexed = productsById.get(id);
+            if (indexed == null) {
+                add(p);
+                changes++;
+            } else if (!sameText(indexed, p)) {
+                remove(id);
+                add(p);
+                changes++;
+            } else {
+                // Same searchable text; just point at the newly loaded instance
+                productsById.put(id, p);
+            }
+        }
+        if (present.size() < productsById.size()) {
+            List<String> gone = new ArrayList<>();
+            for (String id : productsById.keySet()) {
+                if (!present.contains(id)) gone.add(id);
+            }
+            for (String id : gone) {
+                remove(id);
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    public synchronized void add(Product p) {
+        String id = p.getProductId();
+        if (productsById.containsKey(id)) {
+            remove(id);
+        }
+        String[] tokens = tokensOf(p);
+        productsById.put(id, p);
+        tokensById.put(id, tokens);
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    public synchronized void remove(String productId) {
+        String[] tokens = tokensById.remove(productId);
+        productsById.remove(productId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Set<String> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return All products matching every query token, best matches first.
+     */
+    public List<Product> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param query Free text; split into tokens the same way product names are.
+     * @param limit Maximum number of products to return.
+     * @return Up to {@code limit} products matching every query token, best matches first.
+     */
+    public synchronized List<Product> search(String query, int limit) {
+        Map<String, Integer> scores = limit <= 0 ? null : score(tokenize(query));
+        if (scores == null) {
+            return new ArrayList<>();
+        }
+
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort((a, b) -> {
+            int byScore = Integer.compare(b.getValue(), a.getValue());
+            if (byScore != 0) return byScore;
+            Product pa = productsById.get(a.getKey());
+            Product pb = productsById.get(b.getKey());
+            int byName = String.CASE_INSENSITIVE_ORDER.compare(nullToEmpty(pa.getName()), nullToEmpty(pb.getName()));
+            return byName != 0 ? byName : a.getKey().compareTo(b.getKey());
+        });
+        List<Product> results = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Map.Entry<String, Integer> e : ranked) {
+            if (results.size() >= limit) break;
+            results.add(productsById.get(e.getKey()));
+        }
+        return results;
+    }
+
+    /**
+     * Like {@link #search(String)} without the ranking, for callers that sort the
+     * matches themselves (e.g. the admin table's filter).
+     */
+    synchronized List<Product> matches(String query) {
+        Map<String, Integer> scores = score(tokenize(query));
+        if (scores == null) {
+            return new ArrayList<>();
+        }
+        List<Product> results = new ArrayList<>(scores.size());
+        for (String id : scores.keySet()) {
+            results.add(productsById.get(id));
+        }
+        return results;
+    }
+
+    // Score = 2 per exact token hit, 1 per prefix-only hit; a product must hit every query token.
+    // Null if nothing matches.
+    private Map<String, Integer> score(String[] queryTokens) {
+        if (queryTokens.length == 0) {
+            return null;
+        }
+        Map<String, Integer> scores = null;
+        for (String qt : queryTokens) {
+            Map<String, Integer> hits = new HashMap<>();
+            for (Map.Entry<String, Set<String>> e : postings.subMap(qt, true, qt + Character.MAX_VALUE, false).entrySet()) {
+                int points = e.getKey().length() == qt.length() ? 2 : 1;
+                for (String id : e.getValue()) {
+                    if (scores == null || scores.containsKey(id)) {
+                        hits.merge(id, points, Math::max);
+                    }
+                }
+            }
+            if (scores != null) {
+                for (Map.Entry<String, Integer> h : hits.entrySet()) {
+                    h.setValue(h.getValue() + scores.get(h.getKey()));
+                }
+            }
+            scores = hits;
+            if (scores.isEmpty()) {
+                return null;
+            }
+        }
+        return scores;
+    }
+
+    public synchronized int size() {
+        return productsById.size();
+    }
+
+    private static boolean sameText(Product a, Product b) {
+        return nullToEmpty(a.getName()).equals(nullToEmpty(b.getName()));
+    }
+
+    private static String[] tokensOf(Product p) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String t : tokenize(p.getName())) tokens.add(t);
+        for (String t : tokenize(p.getProductId())) tokens.add(t);
+        return tokens.toArray(new String[0]);
+    }
+
+    // Splits on anything that is not a letter or digit and lower-cases each token
+    static String[] tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -1,94 +1,330 @@
 package bookshop.service;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 import bookshop.exceptions.InvalidProductException;
+import bookshop.exceptions.InvalidQuantityException;
 import bookshop.model.Product;
+import bookshop.util.CsvRow;
 import bookshop.util.FileHandler;
+import bookshop.util.MappedProductParser;
+import bookshop.util.Money;
+import bookshop.util.WriteAheadLog;
 
 // Team Member C: Implement the ProductService to load and manage product data.
+/**
+ * The product catalog, kept in memory and persisted as products.csv plus products.wal.
+ *
+ * Screens and tools get the one instance for data/ from {@link #shared()}. Only that
+ * instance appends to and compacts the log, so a compaction can never drop records
+ * written by another instance or cut the log at a position it did not write.
+ * Changes another process makes to the files are picked up by {@link #refresh()}.
+ */
 public class ProductService {
     private static final String PRODUCTS_FILE_PATH = "data/products.csv";
+    private static final String PRODUCTS_LOG_PATH = "data/products.wal";
+    private static final String HEADER = "product_id,product_name,real_price,discounts,quantity";
+    // Log records accumulated before a background compaction folds them into products.csv
+    private static final int COMPACTION_THRESHOLD = 500;
+    private static final String OP_UPSERT = "U";
+    private static final String OP_DELETE = "D";
+    private static final String OP_BATCH = "B";
+
+    private static ProductService shared;
+
+    // One shared daemon thread writes snapshots for every ProductService instance
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ProductCompactionThread");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String productsFilePath;
+    private final WriteAheadLog log;
+    // Serializes snapshot writes so an older snapshot never replaces a newer one
+    private final Object snapshotLock = new Object();
+    private long lastSnapshotPosition = -1L;
+    // products.csv as last read or written here (guarded by snapshotLock); anything else means someone replaced it
+    private long snapshotModified;
+    private long snapshotSize;
+    private boolean compactionPending = false;
     private List<Product> products;
+    // O(1) lookups by id and by case-folded name; kept in step with every mutation
+    private final Map<String, IndexEntry> productsById = new HashMap<>();
+    private final Map<String, List<Product>> productsByName = new HashMap<>();
+    // Admin table queries: built on first use, dropped on every change to the catalog
+    private SortIndex<Product> sortIndex;
+    private final ProductSearchIndex filterIndex = new ProductSearchIndex();
+    private boolean filterIndexStale = true;
 
-    public ProductService() throws IOException {
+    ProductService() throws IOException {
+        this(PRODUCTS_FILE_PATH, PRODUCTS_LOG_PATH);
+    }
+
+    // Loading never compacts: only mutations, made through the owning instance, do
+    ProductService(String productsFilePath, String logFilePath) throws IOException {
+        this.productsFilePath = productsFilePath;
+        this.log = new WriteAheadLog(logFilePath);
         this.products = new ArrayList<>();
+        rememberSnapshotState();
         loadProducts();
+        replayLog();
+        rebuildIndexes();
     }
 
-    private void loadProducts() throws IOException {
-        List<String> lines = FileHandler.readCsv(PRODUCTS_FILE_PATH);
-        // Skip the header row
-        for (int i = 1; i < lines.size(); i++) {
-            String line = lines.get(i);
-            String[] columns = line.split(",");
-            if (columns.length >= 4) {
-                String productId = columns[0].trim();
-                String productName = columns[1].trim();
-                double realPrice = Double.parseDouble(columns[2].trim());
-                String discountsStr = columns[3].trim();
-                // Remove surrounding quotes if present
-                if (discountsStr.startsWith("\"") && discountsStr.endsWith("\"")) {
-                    discountsStr = discountsStr.substring(1, discountsStr.length() - 1);
+    /**
+     * @return The catalog for data/products.csv, shared by every screen; loaded on first use.
+     * @throws IOException If the first load fails (the next call tries again).
+     */
+    public static synchronized ProductService shared() throws IOException {
+        if (shared == null) {
+            shared = new ProductService();
+        }
+        return shared;
+    }
+
+    /**
+     * Picks up changes another process made to products.csv and products.wal since this
+     * catalog last read or wrote them. Records appended to the log are applied on top of the
+     * catalog; a replaced products.csv, or a log compacted elsewhere, reloads the whole catalog.
+     * @return true if anything changed.
+     */
+    public boolean refresh() throws IOException {
+        synchronized (snapshotLock) {
+            synchronized (this) {
+                if (snapshotChanged() || log.isRewritten()) {
+                    System.out.println("[ProductService] " + productsFilePath + " changed on disk, reloading");
+                    products.clear();
+                    log.reopen();
+                    rememberSnapshotState();
+                    loadProducts();
+                    replayLog();
+                    rebuildIndexes();
+                    return true;
                 }
-                Map<Integer, Double> discountRules = FileHandler.parseDiscountString(discountsStr);
-                int qty = 0;
-                if (columns.length >= 5) {
-                    try {
-                        qty = Integer.parseInt(columns[4].trim());
-                    } catch (NumberFormatException nfe) {
-                        qty = 0;
+                boolean[] changed = {false};
+                readLog(log::replayAppended, entry -> {
+                    IndexEntry current = productsById.get(entry.getKey());
+                    if (entry.getValue() != null) {
+                        put(entry.getValue());
+                    } else if (current != null) {
+                        remove(current);
                     }
-                }
-                Product product = new Product(productId, productName, realPrice, discountRules, qty);
+                    changed[0] = true;
+                });
+                return changed[0];
+            }
+        }
+    }
+
+    private boolean snapshotChanged() throws IOException {
+        Path file = Paths.get(productsFilePath);
+        long modified = Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0L;
+        long size = Files.exists(file) ? Files.size(file) : 0L;
+        return modified != snapshotModified || size != snapshotSize;
+    }
+
+    private void rememberSnapshotState() throws IOException {
+        Path file = Paths.get(productsFilePath);
+        snapshotModified = Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0L;
+        snapshotSize = Files.exists(file) ? Files.size(file) : 0L;
+    }
+
+    private void loadProducts() throws IOException {
+        // Scan the file's bytes in place; the header row is skipped by the parser
+        MappedProductParser.parse(Paths.get(productsFilePath), row -> {
+            if (row.fieldCount() >= 4) {
+                Product product = new Product(row.productId(), row.name(), 0.0);
+                product.setRealPriceCents(row.realPriceCents());
+                product.setQuantity(row.quantity());
+                row.forEachDiscountRule(product::setDiscountCents);
                 products.add(product);
             }
+        });
+    }
+
+    /**
+     * Applies logged mutations on top of the snapshot loaded from products.csv.
+     * Every record carries the full product state, so replaying a record that is
+     * already part of the snapshot is harmless. A batch ("B,<count>" followed by its
+     * records) is only applied if all of its records made it to disk.
+     */
+    private void replayLog() throws IOException {
+        Map<String, Product> byId = new LinkedHashMap<>();
+        for (Product p : products) {
+            byId.put(p.getProductId(), p);
+        }
+        boolean[] changed = {false};
+        readLog(log::replay, entry -> {
+            applyLogEntry(byId, entry);
+            changed[0] = true;
+        });
+        if (changed[0]) {
+            products.clear();
+            products.addAll(byId.values());
         }
     }
 
-    public List<Product> getAllProducts() {
-        return new ArrayList<>(products);
+    // Some or all of the log's records, as handed to a row handler
+    private interface LogRecords {
+        void read(FileHandler.CsvRowHandler handler) throws IOException;
     }
 
-    public Product findProductByName(String name) throws InvalidProductException {
-        for (Product product : products) {
-            if (product.getName().equalsIgnoreCase(name)) {
-                return product;
+    /**
+     * Hands each readable record to the given consumer as an id and new state (null for a delete),
+     * holding back the records of a batch until all of them have been read.
+     */
+    private static void readLog(LogRecords records, Consumer<Map.Entry<String, Product>> apply) throws IOException {
+        // Pending batch entries: key = product id, value = new state (null for a delete)
+        List<Map.Entry<String, Product>> batch = new ArrayList<>();
+        int[] batchRemaining = {0};
+        records.read(row -> {
+            if (OP_BATCH.equals(row.get(0))) {
+                if (batchRemaining[0] > 0) {
+                    System.err.println("[ProductService] Discarding incomplete log batch before line " + row.lineNumber());
+                }
+                batch.clear();
+                batchRemaining[0] = row.getInt(1, 0);
+                return;
+            }
+            Map.Entry<String, Product> entry = parseLogRecord(row);
+            if (batchRemaining[0] > 0) {
+                if (entry == null) {
+                    System.err.println("[ProductService] Discarding log batch with unreadable record at line " + row.lineNumber());
+                    batch.clear();
+                    batchRemaining[0] = 0;
+                    return;
+                }
+                batch.add(entry);
+                if (--batchRemaining[0] == 0) {
+                    batch.forEach(apply);
+                    batch.clear();
+                }
+            } else if (entry != null) {
+                apply.accept(entry);
             }
+        });
+        if (batchRemaining[0] > 0) {
+            // Most likely a batch torn by a crash mid-append
+            System.err.println("[ProductService] Discarding incomplete log batch at end of log");
         }
-        throw new InvalidProductException("Product not found: " + name);
     }
 
-    public Product findProductById(String id) {
-        for (Product product : products) {
-            if (product.getProductId().equals(id)) {
-                return product;
+    /**
+     * @return The id and new state for an upsert, the id and null for a delete, or null if unreadable.
+     */
+    private static Map.Entry<String, Product> parseLogRecord(CsvRow row) {
+        String op = row.get(0);
+        try {
+            if (OP_UPSERT.equals(op) && row.size() >= 5) {
+                Product p = new Product(row.get(1), row.get(2), 0.0);
+                p.setRealPriceCents(row.getCents(3));
+                p.setQuantity(row.getInt(5, 0));
+                FileHandler.parseDiscountRules(row.get(4), p::setDiscountCents);
+                return new AbstractMap.SimpleEntry<>(p.getProductId(), p);
+            } else if (OP_DELETE.equals(op) && row.size() >= 2) {
+                return new AbstractMap.SimpleEntry<>(row.get(1), null);
             }
+            System.err.println("[ProductService] Skipping malformed log record at line " + row.lineNumber());
+        } catch (NumberFormatException e) {
+            // Most likely a record torn by a crash mid-append
+            System.err.println("[ProductService] Skipping unreadable log record at line " + row.lineNumber() + ": " + e.getMessage());
         }
         return null;
     }
 
+    private static void applyLogEntry(Map<String, Product> byId, Map.Entry<String, Product> entry) {
+        if (entry.getValue() == null) {
+            byId.remove(entry.getKey());
+        } else {
+            byId.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public synchronized List<Product> getAllProducts() {
+        return new ArrayList<>(products);
+    }
+
+    /**
+     * Sort orders for {@link #queryProducts}.
+     */
+    public enum SortKey {
+        ID((a, b) -> PriceChange.compareIds(a.getProductId(), b.getProductId())),
+        NAME(Comparator.comparing(p -> nameKey(p.getName()))),
+        PRICE(Comparator.comparingLong(Product::getRealPriceCents)),
+        QUANTITY(Comparator.comparingInt(Product::getQuantity));
+
+        private final Comparator<Product> comparator;
+
+        SortKey(Comparator<Product> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    /**
+     * Products for a page of the admin table, filtered and sorted by indexes: each sort
+     * order is computed once per catalog change, and the filter is a token-prefix lookup
+     * (as in the cashier search box), so repeated queries do not scan the catalog.
+     * @param filter Free text, or null/blank for every product.
+     * @param sortKey Sort order, or null for catalog order.
+     * @param descending true to reverse the order.
+     * @return A read-only view; rows are read only when asked for.
+     */
+    public synchronized QueryResult<Product> queryProducts(String filter, SortKey sortKey, boolean descending) {
+        if (sortIndex == null) {
+            sortIndex = new SortIndex<>(products);
+        }
+        Comparator<Product> comparator = sortKey == null ? null : sortKey.comparator;
+        if (filter == null || filter.trim().isEmpty()) {
+            return sortIndex.all(sortKey, comparator, descending);
+        }
+        if (filterIndexStale) {
+            filterIndex.sync(products);
+            filterIndexStale = false;
+        }
+        return sortIndex.matching(filterIndex.matches(filter), sortKey, comparator, descending);
+    }
+
+    public synchronized Product findProductByName(String name) throws InvalidProductException {
+        List<Product> matches = name == null ? null : productsByName.get(nameKey(name));
+        if (matches == null) {
+            throw new InvalidProductException("Product not found: " + name);
+        }
+        return matches.get(0);
+    }
+
+    public synchronized Product findProductById(String id) {
+        IndexEntry entry = productsById.get(id);
+        return entry == null ? null : entry.product;
+    }
+
     /**
-     * Add a product to the CSV file and in-memory list.
+     * Add a product to the in-memory list and record it in the product log.
      * If the product ID is null or empty, it will be auto-generated.
      */
-    public void addProduct(Product product) throws IOException {
+    public synchronized void addProduct(Product product) throws IOException {
         if (product.getProductId() == null || product.getProductId().trim().isEmpty()) {
             product.setProductId(generateNextProductId());
         }
-        // Serialize product line: id,name,realPrice,"discounts"
-        String discounts = FileHandler.serializeDiscountMap(product.getDiscountRules());
-        String line = String.format("%s,%s,%.2f,\"%s\",%d", 
-            product.getProductId(), 
-            FileHandler.escapeCsvField(product.getName()), 
-            product.getRealPrice(), 
-            discounts == null ? "" : discounts, 
-            product.getQuantity());
-        FileHandler.appendLine(PRODUCTS_FILE_PATH, line);
+        log.append(OP_UPSERT + "," + toCsvLine(product));
         this.products.add(product);
+        index(product, products.size() - 1);
+        maybeScheduleCompaction();
     }
 
     /**
@@ -118,44 +354,341 @@ public class ProductService {
     }
 
     /**
-     * Delete a product by id and persist changes.
+     * Delete a product by id and record the deletion in the product log.
      */
-    public void deleteProduct(String productId) throws IOException {
-        products.removeIf(p -> p.getProductId().equals(productId));
-        saveAllProducts();
+    public synchronized void deleteProduct(String productId) throws IOException {
+        IndexEntry entry = productsById.get(productId);
+        if (entry == null) {
+            return;
+        }
+        log.append(OP_DELETE + "," + productId);
+        remove(entry);
+        maybeScheduleCompaction();
     }
 
     /**
-     * Update an existing product (matching by id) and persist.
+     * Update an existing product (matching by id) and record it in the product log.
+     * Only the changed product is written, so the cost does not grow with the catalog.
      */
-    public void updateProduct(Product updated) throws IOException {
-        for (int i = 0; i < products.size(); i++) {
-            if (products.get(i).getProductId().equals(updated.getProductId())) {
-                products.set(i, updated);
-                saveAllProducts();
-                return;
+    public synchronized void updateProduct(Product updated) throws IOException {
+        if (!productsById.containsKey(updated.getProductId())) {
+            // if not found, add
+            addProduct(updated);
+            return;
+        }
+        log.append(OP_UPSERT + "," + toCsvLine(updated));
+        replace(updated);
+        maybeScheduleCompaction();
+    }
+
+    /**
+     * Update several products as one unit: all of them are written to the product log
+     * in a single append, and replay applies either all or none of them.
+     * Nothing changes in memory unless the append succeeds.
+     */
+    public synchronized void updateProducts(List<Product> updated) throws IOException {
+        if (updated.isEmpty()) {
+            return;
+        }
+        List<String> records = new ArrayList<>(updated.size() + 1);
+        records.add(OP_BATCH + "," + updated.size());
+        for (Product p : updated) {
+            if (p.getProductId() == null || p.getProductId().trim().isEmpty()) {
+                p.setProductId(generateNextProductId());
+            }
+            records.add(OP_UPSERT + "," + toCsvLine(p));
+        }
+        log.appendAll(records);
+        for (Product p : updated) {
+            put(p);
+        }
+        maybeScheduleCompaction();
+    }
+
+    /**
+     * Applies a bulk price change (e.g. +8% across one publisher's range) to every product
+     * the change selects, and persists all of them with one log append.
+     * The new prices are computed and serialized in parallel on scratch copies; only once
+     * the append succeeds are they copied onto the catalog's own instances, which keep their
+     * promotion tiers and stay the ones screens and caches hold. Replay applies all or none.
+     * @return The number of products repriced.
+     */
+    public synchronized int repriceProducts(PriceChange change) throws IOException {
+        Product[] current = products.toArray(new Product[0]);
+        Product[] repriced = new Product[current.length];
+        String[] records = new String[current.length];
+        IntStream.range(0, current.length).parallel().forEach(i -> {
+            if (change.selects(current[i])) {
+                repriced[i] = repriced(current[i], change);
+                records[i] = OP_UPSERT + "," + toCsvLine(repriced[i]);
             }
+        });
+
+        List<String> batch = new ArrayList<>();
+        batch.add(null); // header, once the count is known
+        for (String record : records) {
+            if (record != null) {
+                batch.add(record);
+            }
+        }
+        int count = batch.size() - 1;
+        if (count == 0) {
+            return 0;
         }
-        // if not found, add
-        addProduct(updated);
+        batch.set(0, OP_BATCH + "," + count);
+        log.appendAll(batch);
+        for (int i = 0; i < repriced.length; i++) {
+            if (repriced[i] != null) {
+                copyPrices(repriced[i], current[i], change.rescalesTiers());
+            }
+        }
+        invalidateQueries();
+        maybeScheduleCompaction();
+        return count;
+    }
+
+    private static void copyPrices(Product from, Product to, boolean tiers) {
+        to.setRealPriceCents(from.getRealPriceCents());
+        if (tiers) {
+            for (int t = 0; t < from.getDiscountTierCount(); t++) {
+                to.setDiscountCents(from.getDiscountThreshold(t), from.getDiscountPriceCents(t));
+            }
+        }
+    }
+
+    private static Product repriced(Product p, PriceChange change) {
+        Product copy = new Product(p.getProductId(), p.getName(), 0.0);
+        copy.setRealPriceCents(change.apply(p.getRealPriceCents()));
+        for (int t = 0; t < p.getDiscountTierCount(); t++) {
+            long price = p.getDiscountPriceCents(t);
+            copy.setDiscountCents(p.getDiscountThreshold(t), change.rescalesTiers() ? change.apply(price) : price);
+        }
+        copy.setQuantity(p.getQuantity());
+        return copy;
     }
 
     /**
-     * Save all products to the CSV file (overwrite).
+     * Deducts sold quantities from stock as a single transaction.
+     * Every line is validated before anything changes; the deductions are then applied
+     * and persisted with one log append. If persisting fails, the in-memory stock is restored.
+     * @param quantitiesByProductId Quantity sold per product id.
+     * @throws InvalidProductException If a product id is unknown.
+     * @throws InvalidQuantityException If a quantity is not positive or exceeds the stock.
+     * @throws IOException If the change cannot be persisted (stock is left unchanged).
+     */
+    public synchronized void deductStock(Map<String, Integer> quantitiesByProductId)
+            throws IOException, InvalidProductException, InvalidQuantityException {
+        List<Product> affected = new ArrayList<>(quantitiesByProductId.size());
+        for (Map.Entry<String, Integer> line : quantitiesByProductId.entrySet()) {
+            Product p = findProductById(line.getKey());
+            if (p == null) {
+                throw new InvalidProductException("Product not found: " + line.getKey());
+            }
+            int qty = line.getValue();
+            if (qty <= 0) {
+                throw new InvalidQuantityException("Invalid quantity for " + p.getName() + ": " + qty);
+            }
+            if (qty > p.getQuantity()) {
+                throw new InvalidQuantityException("Insufficient stock for " + p.getName() + ". Available: " + p.getQuantity());
+            }
+            affected.add(p);
+        }
+
+        int[] previous = new int[affected.size()];
+        for (int i = 0; i < affected.size(); i++) {
+            Product p = affected.get(i);
+            previous[i] = p.getQuantity();
+            p.setQuantity(previous[i] - quantitiesByProductId.get(p.getProductId()));
+        }
+        // The quantities changed in place, so cached QUANTITY orders are stale even if the append fails
+        invalidateQueries();
+        try {
+            updateProducts(affected);
+        } catch (IOException e) {
+            for (int i = 0; i < affected.size(); i++) {
+                affected.get(i).setQuantity(previous[i]);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Save all products to the CSV file (overwrite) and clear the product log.
      */
     public void saveAllProducts() throws IOException {
-        List<String> lines = new ArrayList<>();
-        lines.add("product_id,product_name,real_price,discounts,quantity");
+        List<String> lines;
+        long position;
+        synchronized (this) {
+            lines = snapshotLines();
+            position = log.position();
+        }
+        writeSnapshot(lines, position);
+    }
+
+    /**
+     * Starts a background compaction once enough records have piled up in the log.
+     * Must be called while holding this service's lock.
+     */
+    private void maybeScheduleCompaction() {
+        if (compactionPending || log.recordCount() < COMPACTION_THRESHOLD) {
+            return;
+        }
+        compactionPending = true;
+        COMPACTOR.execute(() -> {
+            List<String> lines;
+            long position;
+            synchronized (this) {
+                compactionPending = false;
+                lines = snapshotLines();
+                position = log.position();
+            }
+            try {
+                writeSnapshot(lines, position);
+                System.out.println("[ProductService] Compacted product log into " + productsFilePath);
+            } catch (IOException e) {
+                System.err.println("[ProductService] Compaction failed, log kept: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Writes a snapshot captured at the given log position, then drops the log records it contains.
+     */
+    private void writeSnapshot(List<String> lines, long position) throws IOException {
+        synchronized (snapshotLock) {
+            if (position < lastSnapshotPosition) {
+                return; // a newer snapshot is already on disk
+            }
+            FileHandler.writeCsvAtomic(productsFilePath, lines);
+            rememberSnapshotState();
+            lastSnapshotPosition = position;
+            log.truncateBefore(position);
+        }
+    }
+
+    // --- Lookup indexes (guarded by this service's lock) ---
+
+    private void invalidateQueries() {
+        sortIndex = null;
+        filterIndexStale = true;
+    }
+
+    private void rebuildIndexes() {
+        invalidateQueries();
+        productsById.clear();
+        productsByName.clear();
+        for (int i = 0; i < products.size(); i++) {
+            index(products.get(i), i);
+        }
+    }
+
+    private void index(Product p, int position) {
+        invalidateQueries();
+        String key = nameKey(p.getName());
+        if (productsById.putIfAbsent(p.getProductId(), new IndexEntry(p, key, position)) == null) {
+            productsByName.computeIfAbsent(key, k -> new ArrayList<>(1)).add(p);
+        }
+    }
+
+    // Adds the product, or replaces the one with its id
+    private void put(Product p) {
+        if (productsById.containsKey(p.getProductId())) {
+            replace(p);
+        } else {
+            products.add(p);
+            index(p, products.size() - 1);
+        }
+    }
+
+    private void remove(IndexEntry entry) {
+        String productId = entry.product.getProductId();
+        products.removeIf(p -> p.getProductId().equals(productId));
+        unindex(entry);
+        // Everything after the removed product moved up a slot
+        for (int i = entry.position; i < products.size(); i++) {
+            Product p = products.get(i);
+            IndexEntry moved = productsById.get(p.getProductId());
+            if (moved != null && moved.product == p) {
+                moved.position = i;
+            }
+        }
+    }
+
+    private void unindex(IndexEntry entry) {
+        invalidateQueries();
+        productsById.remove(entry.product.getProductId());
+        removeFromNameIndex(entry.nameKey, entry.product);
+    }
+
+    /**
+     * Points the indexes (and the list slot, if a new instance is given) at the updated product.
+     * The slot comes from the index entry, so this stays O(1) however big the catalog is.
+     * The name index is re-keyed because callers usually rename the product in place before updating.
+     */
+    private void replace(Product updated) {
+        invalidateQueries();
+        IndexEntry entry = productsById.get(updated.getProductId());
+        Product previous = entry.product;
+        String key = nameKey(updated.getName());
+        if (previous != updated) {
+            products.set(entry.position, updated);
+        }
+        if (!key.equals(entry.nameKey)) {
+            // Renamed in place: sync() would not notice, so drop its old tokens now
+            filterIndex.remove(updated.getProductId());
+        }
+        if (previous != updated || !key.equals(entry.nameKey)) {
+            removeFromNameIndex(entry.nameKey, previous);
+            productsByName.computeIfAbsent(key, k -> new ArrayList<>(1)).add(updated);
+            entry.product = updated;
+            entry.nameKey = key;
+        }
+    }
+
+    private void removeFromNameIndex(String key, Product p) {
+        List<Product> bucket = productsByName.get(key);
+        if (bucket != null) {
+            bucket.removeIf(candidate -> candidate == p);
+            if (bucket.isEmpty()) {
+                productsByName.remove(key);
+            }
+        }
+    }
+
+    // Case-folded key so lookups match String.equalsIgnoreCase semantics for ordinary names
+    private static String nameKey(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class IndexEntry {
+        Product product;
+        String nameKey;
+        int position; // slot in the products list
+
+        IndexEntry(Product product, String nameKey, int position) {
+            this.product = product;
+            this.nameKey = nameKey;
+            this.position = position;
+        }
+    }
+
+    private List<String> snapshotLines() {
+        List<String> lines = new ArrayList<>(products.size() + 1);
+        lines.add(HEADER);
         for (Product p : products) {
-            String discounts = FileHandler.serializeDiscountMap(p.getDiscountRules());
-            String line = String.format("%s,%s,%.2f,\"%s\",%d", 
-                p.getProductId(), 
-                FileHandler.escapeCsvField(p.getName()), 
-                p.getRealPrice(), 
-                discounts == null ? "" : discounts, 
-                p.getQuantity());
-            lines.add(line);
-        }
-        FileHandler.writeCsv(PRODUCTS_FILE_PATH, lines);
+            lines.add(toCsvLine(p));
+        }
+        return lines;
+    }
+
+    // Serialize product line: id,name,realPrice,"discounts",quantity
+    private static String toCsvLine(Product p) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(p.getProductId()).append(',')
+          .append(FileHandler.escapeCsvField(p.getName())).append(',');
+        Money.appendTo(sb, p.getRealPriceCents()).append(",\"")
+          .append(FileHandler.serializeDiscountMap(p.getDiscountRules())).append("\",")
+          .append(p.getQuantity());
+        return sb.toString();
     }
 }
@@ -0,0 +1,192 @@
+package bookshop.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import bookshop.model.Product;
+import bookshop.model.Promotion;
+import bookshop.util.Money;
+
+/**
+ * Switches promotions on and off at their window boundaries.
+ *
+ * At each boundary the set of running promotions is worked out once, merged into one tier
+ * map per product, and published as an immutable snapshot; each product then gets its
+ * promotion tiers swapped in one write. Between boundaries nothing runs, and checkout
+ * never compares timestamps: it just reads the product's current tier table.
+ */
+public class PromotionScheduler {
+    private final List<Promotion> promotions;
+    private final LocalDateTime[] boundaries; // sorted, distinct
+    private final Supplier<List<Product>> catalog;
+    private final Clock clock;
+    private volatile Snapshot current = Snapshot.EMPTY;
+    private volatile Runnable onChange;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param promotions All known promotions, past and future.
+     * @param catalog Supplies the products to update; read again at every boundary,
+     *                so a reloaded catalog is picked up.
+     * @param clock Source of the current time (the system clock outside tests).
+     */
+    public PromotionScheduler(List<Promotion> promotions, Supplier<List<Product>> catalog, Clock clock) {
+        this.promotions = new ArrayList<>(promotions);
+        this.catalog = catalog;
+        this.clock = clock;
+        TreeSet<LocalDateTime> times = new TreeSet<>();
+        for (Promotion p : promotions) {
+            times.add(p.getStart());
+            times.add(p.getEnd());
+        }
+        this.boundaries = times.toArray(new LocalDateTime[0]);
+    }
+
+    /**
+     * @param onChange Called (on the scheduler thread) after the running promotions changed,
+     *                 e.g. to re-price an open cart.
+     */
+    public void setOnChange(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    /**
+     * Applies the promotions running now and schedules the next boundary on a daemon thread.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "promotion-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.execute(this::tick);
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private void tick() {
+        boolean changed = refresh();
+        Runnable callback = onChange;
+        if (changed && callback != null) {
+            callback.run();
+        }
+        LocalDateTime next = current.nextBoundary;
+        synchronized (this) {
+            if (next != null && executor != null) {
+                // Round up so the tick never lands just before the boundary
+                long delayMs = Math.max(0, Duration.between(LocalDateTime.now(clock), next).toMillis() + 1);
+                executor.schedule(this::tick, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Recomputes the running promotions for the current time and applies them to the catalog.
+     * @return true if the set of running promotions changed.
+     */
+    public boolean refresh() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Snapshot previous = current;
+        if (previous.covers(now)) {
+            return false;
+        }
+        Snapshot next = buildSnapshot(now);
+        current = next;
+        applyTo(catalog.get());
+        return !next.active.equals(previous.active);
+    }
+
+    /**
+     * Swaps the current snapshot's tiers into the given products, e.g. right after a reload.
+     * Products without a running promotion have their promotion tiers cleared.
+     */
+    public void applyTo(List<Product> products) {
+        Snapshot snapshot = current;
+        for (Product product : products) {
+            product.setPromotionTiers(snapshot.tiersByProductId.get(product.getProductId()));
+        }
+    }
+
+    /**
+     * @return The promotions running as of the last boundary (read-only).
+     */
+    public List<Promotion> getActivePromotions() {
+        return current.active;
+    }
+
+    /**
+     * @return When the running promotions next change, or null if they never will.
+     */
+    public LocalDateTime getNextBoundary() {
+        return current.nextBoundary;
+    }
+
+    private Snapshot buildSnapshot(LocalDateTime now) {
+        List<Promotion> active = new ArrayList<>();
+        Map<String, Map<Integer, Long>> tiers = new HashMap<>();
+        for (Promotion p : promotions) {
+            if (!p.isActiveAt(now)) {
+                continue;
+            }
+            active.add(p);
+            Map<Integer, Long> productTiers = tiers.computeIfAbsent(p.getProductId(), k -> new HashMap<>());
+            // Overlapping promotions on one product: lowest price per threshold wins
+            for (Map.Entry<Integer, Double> rule : p.getDiscountRules().entrySet()) {
+                productTiers.merge(rule.getKey(), Money.ofDouble(rule.getValue()), Math::min);
+            }
+        }
+        // The window this snapshot is valid for: [last boundary <= now, first boundary > now)
+        LocalDateTime from = null;
+        LocalDateTime until = null;
+        for (LocalDateTime b : boundaries) {
+            if (b.isAfter(now)) {
+                until = b;
+                break;
+            }
+            from = b;
+        }
+        return new Snapshot(Collections.unmodifiableList(active), tiers, from, until);
+    }
+
+    // Everything checkout needs between two boundaries; never mutated once published
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyMap(), LocalDateTime.MAX, null);
+
+        final List<Promotion> active;
+        final Map<String, Map<Integer, Long>> tiersByProductId;
+        final LocalDateTime validFrom;     // null = since forever
+        final LocalDateTime nextBoundary;  // null = until forever
+
+        Snapshot(List<Promotion> active, Map<String, Map<Integer, Long>> tiersByProductId,
+                 LocalDateTime validFrom, LocalDateTime nextBoundary) {
+            this.active = active;
+            this.tiersByProductId = tiersByProductId;
+            this.validFrom = validFrom;
+            this.nextBoundary = nextBoundary;
+        }
+
+        boolean covers(LocalDateTime now) {
+            return (validFrom == null || !now.isBefore(validFrom))
+                    && (nextBoundary == null || now.isBefore(nextBoundary));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package bookshop.service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import bookshop.model.Promotion;
+import bookshop.util.FileHandler;
+
+/**
+ * Loads time-windowed promotions from data/promotions.csv.
+ * Each row is {@code promotion_id,promotion_name,product_id,start,end,discounts} with ISO
+ * date-times ({@code 2025-01-06T08:00}) and discounts in the products.csv format.
+ * A missing file means no promotions.
+ */
+public class PromotionService {
+    private static final String PROMOTIONS_FILE_PATH = "data/promotions.csv";
+    private final List<Promotion> promotions = new ArrayList<>();
+
+    public PromotionService() throws IOException {
+        this(PROMOTIONS_FILE_PATH);
+    }
+
+    PromotionService(String filePath) throws IOException {
+        loadPromotions(filePath);
+    }
+
+    private void loadPromotions(String filePath) throws IOException {
+        FileHandler.readCsv(filePath, true, row -> {
+            if (row.size() < 6) {
+                return;
+            }
+            try {
+                LocalDateTime start = LocalDateTime.parse(row.get(3));
+                LocalDateTime end = LocalDateTime.parse(row.get(4));
+                Map<Integer, Double> rules = FileHandler.parseDiscountString(row.get(5));
+                if (!end.isAfter(start) || rules.isEmpty()) {
+                    System.err.println("[PromotionService] Skipping empty promotion on line " + row.lineNumber());
+                    return;
+                }
+                promotions.add(new Promotion(row.get(0), row.get(1), row.get(2), start, end, rules));
+            } catch (DateTimeParseException e) {
+                System.err.println("[PromotionService] Bad date on line " + row.lineNumber() + ": " + e.getParsedString());
+            }
+        });
+    }
+
+    public List<Promotion> getAllPromotions() {
+        return new ArrayList<>(promotions);
+    }
+}
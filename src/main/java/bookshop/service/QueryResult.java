@@ -0,0 +1,41 @@
+package bookshop.service;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * One sorted, filtered view of a service's rows, as returned by
+ * {@link ProductService#queryProducts} and {@link CustomerService#queryCustomers}.
+ *
+ * Nothing is copied: the view reads rows through a position array owned by the
+ * service's sort index, so handing it to a TableView costs the same for any size,
+ * and the table only touches the rows it shows. Read-only; reflects the rows as
+ * they were when the query ran.
+ */
+public final class QueryResult<T> extends AbstractList<T> implements RandomAccess {
+    private final Object[] rows;
+    private final int[] order; // null = rows in stored order
+    private final int size;
+    private final boolean descending;
+
+    QueryResult(Object[] rows, int[] order, boolean descending) {
+        this.rows = rows;
+        this.order = order;
+        this.size = order == null ? rows.length : order.length;
+        this.descending = descending;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        int i = descending ? size - 1 - index : index;
+        return (T) rows[order == null ? i : order[i]];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
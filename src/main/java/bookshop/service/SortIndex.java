@@ -0,0 +1,101 @@
+package bookshop.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sort orders over a snapshot of a service's rows, for the paged admin tables.
+ *
+ * Each sort key is sorted once, on first use, into a position array plus its inverse
+ * (the rank of every row). A full listing is then the position array itself, read
+ * forwards or backwards, and a filtered listing sorts only the ranks of the matches.
+ * The owning service drops the whole index whenever its rows change; not thread-safe,
+ * callers hold the service's lock.
+ */
+final class SortIndex<T> {
+    private final Object[] rows;
+    private final Map<Object, int[]> orders = new HashMap<>();
+    private final Map<Object, int[]> ranks = new HashMap<>();
+    private Map<T, Integer> positions;
+
+    SortIndex(List<T> rows) {
+        this.rows = rows.toArray();
+    }
+
+    /**
+     * @param key Cache key for the order (e.g. a sort-key enum), or null for stored order.
+     */
+    QueryResult<T> all(Object key, Comparator<? super T> comparator, boolean descending) {
+        return new QueryResult<>(rows, key == null ? null : order(key, comparator), descending);
+    }
+
+    /**
+     * Same as {@link #all} but only for the given rows, which must be rows of the snapshot.
+     */
+    QueryResult<T> matching(Collection<? extends T> matches, Object key,
+                            Comparator<? super T> comparator, boolean descending) {
+        int[] selected = new int[matches.size()];
+        int n = 0;
+        for (T row : matches) {
+            Integer position = positions().get(row);
+            if (position != null) {
+                selected[n++] = position;
+            }
+        }
+        selected = Arrays.copyOf(selected, n);
+        if (key == null) {
+            Arrays.sort(selected);
+            return new QueryResult<>(rows, selected, descending);
+        }
+        // Sorting ranks is a primitive sort; map them back to positions afterwards
+        int[] order = order(key, comparator);
+        int[] rank = ranks.get(key);
+        for (int i = 0; i < n; i++) {
+            selected[i] = rank[selected[i]];
+        }
+        Arrays.sort(selected);
+        for (int i = 0; i < n; i++) {
+            selected[i] = order[selected[i]];
+        }
+        return new QueryResult<>(rows, selected, descending);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int[] order(Object key, Comparator<? super T> comparator) {
+        int[] order = orders.get(key);
+        if (order != null) {
+            return order;
+        }
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = i;
+        }
+        // Stable, so equal keys keep stored order
+        Arrays.parallelSort(boxed, (a, b) -> comparator.compare((T) rows[a], (T) rows[b]));
+        order = new int[boxed.length];
+        int[] rank = new int[boxed.length];
+        for (int r = 0; r < boxed.length; r++) {
+            order[r] = boxed[r];
+            rank[boxed[r]] = r;
+        }
+        orders.put(key, order);
+        ranks.put(key, rank);
+        return order;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<T, Integer> positions() {
+        if (positions == null) {
+            positions = new IdentityHashMap<>(rows.length);
+            for (int i = 0; i < rows.length; i++) {
+                positions.put((T) rows[i], i);
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,240 @@
+package bookshop.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import bookshop.util.FileHandler;
+
+/**
+ * In-memory copy of data/users.csv, indexed by username and by user id.
+ *
+ * The file is read once and read again only when its modification time or size changes
+ * (e.g. PasswordMigrator or a text editor touched it), so a login costs one stat call
+ * instead of a read and split of the whole file. Changes made through this class are
+ * written to the file and applied in memory without a reload. A rewrite replaces or drops
+ * only the row it changes; every other line (comments, blanks, rows it could not read)
+ * is written back exactly as it was read.
+ * One instance per file is shared by the login screens and the admin screen.
+ */
+public class UserDirectory {
+    private static final String USERS_FILE = "data/users.csv";
+    private static UserDirectory shared;
+
+    private final Path file;
+    // Every line of the file in order, so rewrites keep the lines this class does not manage
+    private final List<Line> lines = new ArrayList<>();
+    private final Map<String, Account> byId = new LinkedHashMap<>();
+    private final Map<String, Account> byUsername = new HashMap<>();
+    private long loadedModified = Long.MIN_VALUE;
+    private long loadedSize = -1;
+
+    UserDirectory(String filePath) {
+        this.file = Paths.get(filePath);
+    }
+
+    /**
+     * @return The directory for data/users.csv, shared by every screen.
+     */
+    public static synchronized UserDirectory shared() {
+        if (shared == null) {
+            shared = new UserDirectory(USERS_FILE);
+        }
+        return shared;
+    }
+
+    /**
+     * @return The account with this username (exact match), or null.
+     */
+    public synchronized Account findByUsername(String username) throws IOException {
+        refreshIfChanged();
+        return byUsername.get(username);
+    }
+
+    /**
+     * @return Every account, in file order.
+     */
+    public synchronized List<Account> getAll() throws IOException {
+        refreshIfChanged();
+        return new ArrayList<>(byId.values());
+    }
+
+    /**
+     * @return The next free id of the form uNN.
+     */
+    public synchronized String generateNextUserId() throws IOException {
+        refreshIfChanged();
+        int maxId = 0;
+        for (String id : byId.keySet()) {
+            // Extract numeric part from ID like "u01", "u02", etc.
+            if (id.startsWith("u")) {
+                try {
+                    maxId = Math.max(maxId, Integer.parseInt(id.substring(1)));
+                } catch (NumberFormatException e) {
+                    // Skip invalid IDs
+                }
+            }
+        }
+        return String.format("u%02d", maxId + 1);
+    }
+
+    /**
+     * Adds an account with a generated id and appends it to the file.
+     * @return The new account.
+     * @throws IOException If the username is already taken, or the file cannot be written.
+     */
+    public synchronized Account add(String username, String passwordHash, String role) throws IOException {
+        Account account = new Account(generateNextUserId(), username, passwordHash, role);
+        requireFreeUsername(account);
+        FileHandler.appendLine(file.toString(), account.toCsvLine());
+        lines.add(new Line(account.toCsvLine(), account.getUserId()));
+        put(account);
+        rememberFileState();
+        return account;
+    }
+
+    /**
+     * Replaces the account with the same id and rewrites its row of the file.
+     * @throws IOException If no account has that id, the new username belongs to another
+     *                     account, or the file cannot be written.
+     */
+    public synchronized void update(Account account) throws IOException {
+        refreshIfChanged();
+        Account previous = byId.get(account.getUserId());
+        if (previous == null) {
+            throw new IOException("User not found: " + account.getUserId());
+        }
+        requireFreeUsername(account);
+        lineOf(account.getUserId()).text = account.toCsvLine();
+        byUsername.remove(previous.getUsername());
+        put(account);
+        save();
+    }
+
+    /**
+     * Removes the account with this id, if any, and drops its row from the file.
+     */
+    public synchronized void delete(String userId) throws IOException {
+        refreshIfChanged();
+        Account removed = byId.remove(userId);
+        if (removed != null) {
+            byUsername.remove(removed.getUsername());
+            lines.remove(lineOf(userId));
+            save();
+        }
+    }
+
+    private void requireFreeUsername(Account account) throws IOException {
+        Account holder = byUsername.get(account.getUsername());
+        if (holder != null && !holder.getUserId().equals(account.getUserId())) {
+            throw new IOException("Username already taken: " + account.getUsername());
+        }
+    }
+
+    // The row an account was read from; the last one if the file repeats the id, as in byId
+    private Line lineOf(String userId) {
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            if (userId.equals(lines.get(i).userId)) {
+                return lines.get(i);
+            }
+        }
+        throw new IllegalStateException("No row for user " + userId);
+    }
+
+    private void put(Account account) {
+        byId.put(account.getUserId(), account);
+        byUsername.put(account.getUsername(), account);
+    }
+
+    private void save() throws IOException {
+        List<String> text = new ArrayList<>(lines.size());
+        for (Line line : lines) {
+            text.add(line.text);
+        }
+        FileHandler.writeCsv(file.toString(), text);
+        rememberFileState();
+    }
+
+    private void refreshIfChanged() throws IOException {
+        long modified = Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0L;
+        long size = Files.exists(file) ? Files.size(file) : 0L;
+        if (modified == loadedModified && size == loadedSize) {
+            return;
+        }
+        lines.clear();
+        byId.clear();
+        byUsername.clear();
+        for (String line : FileHandler.readCsv(file.toString())) {
+            String t = line.trim();
+            String[] cols = t.split(",");
+            if (t.isEmpty() || t.startsWith("#") || cols.length < 4) {
+                lines.add(new Line(line, null));
+                continue;
+            }
+            Account account = new Account(cols[0].trim(), cols[1].trim(), cols[2].trim(), cols[3].trim());
+            lines.add(new Line(line, account.getUserId()));
+            put(account);
+        }
+        loadedModified = modified;
+        loadedSize = size;
+    }
+
+    private void rememberFileState() throws IOException {
+        loadedModified = Files.getLastModifiedTime(file).toMillis();
+        loadedSize = Files.size(file);
+    }
+
+    // One line of the file as last read or written; userId is null for lines that are not accounts
+    private static final class Line {
+        String text;
+        final String userId;
+
+        Line(String text, String userId) {
+            this.text = text;
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * One row of users.csv. Immutable; the password is a BCrypt hash.
+     */
+    public static final class Account {
+        private final String userId;
+        private final String username;
+        private final String passwordHash;
+        private final String role;
+
+        public Account(String userId, String username, String passwordHash, String role) {
+            this.userId = userId;
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.role = role;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getPasswordHash() {
+            return passwordHash;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        String toCsvLine() {
+            return String.format("%s,%s,%s,%s", userId, username, passwordHash, role);
+        }
+    }
+}
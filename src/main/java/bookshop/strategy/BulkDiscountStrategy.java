@@ -2,49 +2,44 @@ package bookshop.strategy;
 
 import bookshop.model.Customer;
 import bookshop.model.Product;
-import java.util.Map;
+import bookshop.util.Money;
+
+import java.util.Arrays;
 
 public class BulkDiscountStrategy implements DiscountStrategy {
 
     @Override
-    public double applyDiscount(double currentTotal, Product product, int quantity, Customer customer) {
-        // Calculate price based on quantity rules (Bulk Discount)
-        // This strategy determines the base cost, so it might override currentTotal 
-        // or be the first one applied.
-        
-        // Logic from BillingService.getUnitPrice
-        double unitPrice = product.getRealPrice();
-        Map<Integer, Double> rules = product.getDiscountRules();
-        
-        if (rules != null) {
-            for (Map.Entry<Integer, Double> entry : rules.entrySet()) {
-                if (quantity >= entry.getKey()) {
-                    // Assuming the map stores the *discounted unit price*
-                    // We take the best price (lowest) if there are multiple matching rules?
-                    // The original logic just iterated, so order mattered or it overwrote.
-                    // Usually maps are unordered unless LinkedHashMap/TreeMap.
-                    // But let's assume we want the lowest price for the quantity.
-                    // Or just follow original logic: "if quantity >= key, unitPrice = value".
-                    // If map is unordered, this is flaky. But let's stick to the logic for now
-                    // or improve it to find the best match.
-                    
-                    // Improvement: Find the rule with the highest quantity threshold that is <= actual quantity
-                    // But the original code was:
-                    // for (var entry : product.getDiscountRules().entrySet()) {
-                    //     if (quantity >= entry.getKey()) {
-                    //         unitPrice = entry.getValue();
-                    //     }
-                    // }
-                    // This implies if multiple match, the last one visited wins. 
-                    // I will improve this to be deterministic: pick the lowest price.
-                    
-                    if (entry.getValue() < unitPrice) {
-                        unitPrice = entry.getValue();
-                    }
-                }
-            }
+    public long applyDiscount(long currentTotalCents, Product product, int quantity, Customer customer) {
+        // Calculate price based on quantity rules (Bulk Discount).
+        // This strategy determines the base cost, so it is applied first.
+        // The best (lowest) price among the tiers reached by the quantity is used;
+        // Product answers this with a binary search over its tier table.
+        long unitPriceCents = product.getUnitPriceCents(quantity);
+        return Money.times(unitPriceCents, quantity);
+    }
+
+    @Override
+    public DiscountStrategy specialise(Product product, Customer customer) {
+        // Includes the tiers of running promotions; a promotion starting or ending bumps
+        // the product's pricing version, so this is rebuilt at window boundaries only
+        int[] breaks = product.getPriceBreaks();
+        if (breaks.length == 0) {
+            long unitPriceCents = product.getRealPriceCents();
+            return (total, p, q, c) -> Money.times(unitPriceCents, q);
+        }
+        // One unit price per breakpoint, like DiscountService's cache: slot 0 is below
+        // the first break, slot i applies from breaks[i - 1]
+        long[] unitPrices = new long[breaks.length + 1];
+        unitPrices[0] = product.getRealPriceCents();
+        for (int i = 0; i < breaks.length; i++) {
+            unitPrices[i + 1] = product.getUnitPriceCents(breaks[i]);
         }
-        
-        return unitPrice * quantity;
+        return (total, p, q, c) -> {
+            if (q < 0) {
+                return Money.times(p.getUnitPriceCents(q), q);
+            }
+            int i = Arrays.binarySearch(breaks, q);
+            return Money.times(unitPrices[i >= 0 ? i + 1 : -i - 1], q);
+        };
     }
 }
@@ -0,0 +1,151 @@
+package bookshop.strategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import bookshop.model.Bundle;
+import bookshop.model.Customer;
+import bookshop.model.Discount;
+import bookshop.model.Product;
+import bookshop.util.Money;
+
+/**
+ * Matches a cart against bundle promotions.
+ *
+ * Bundles are indexed by every product they contain, so only bundles sharing at least
+ * one product with the cart are looked at: the cost follows the size of the cart, not
+ * the number of bundles defined. Among the bundles the cart can fill, the ones saving
+ * the most per application are applied first, and each unit counts towards one bundle only.
+ *
+ * The saving of a bundle is what its components already cost in the cart (at the bulk tier
+ * price for the quantity bought) minus what they cost at the bundle price, so a bundle
+ * never stacks on top of a better bulk price.
+ */
+public class BundleDiscountStrategy implements CartDiscountStrategy {
+    private final Map<String, List<Rule>> rulesByProductId = new HashMap<>();
+
+    public BundleDiscountStrategy(Collection<Bundle> bundles) {
+        for (Bundle bundle : bundles) {
+            Rule rule = new Rule(bundle);
+            if (rule.productIds.length == 0) {
+                continue;
+            }
+            for (String productId : rule.productIds) {
+                rulesByProductId.computeIfAbsent(productId, k -> new ArrayList<>()).add(rule);
+            }
+        }
+    }
+
+    @Override
+    public List<CartAdjustment> apply(Map<String, Product> products, Map<String, Integer> quantities, Customer customer) {
+        // Candidate bundles: only those indexed under a product that is in the cart
+        Set<Rule> candidates = new LinkedHashSet<>();
+        for (String productId : quantities.keySet()) {
+            List<Rule> rules = rulesByProductId.get(productId);
+            if (rules != null) {
+                candidates.addAll(rules);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Rule> fillable = new ArrayList<>();
+        Map<Rule, Long> savings = new HashMap<>();
+        for (Rule rule : candidates) {
+            if (rule.timesFilled(quantities) == 0) {
+                continue;
+            }
+            long saving = rule.savingCents(products, quantities);
+            if (saving > 0) {
+                fillable.add(rule);
+                savings.put(rule, saving);
+            }
+        }
+        // Best saving first; ties by bundle id so the result does not depend on cart order
+        fillable.sort((a, b) -> {
+            int bySaving = Long.compare(savings.get(b), savings.get(a));
+            return bySaving != 0 ? bySaving : String.valueOf(a.bundleId).compareTo(String.valueOf(b.bundleId));
+        });
+
+        Map<String, Integer> remaining = new HashMap<>(quantities);
+        List<CartAdjustment> adjustments = new ArrayList<>();
+        for (Rule rule : fillable) {
+            int times = rule.timesFilled(remaining);
+            if (times == 0) {
+                continue;
+            }
+            for (int i = 0; i < rule.productIds.length; i++) {
+                remaining.merge(rule.productIds[i], -rule.required[i] * times, Integer::sum);
+            }
+            String description = times > 1 ? rule.name + " x" + times : rule.name;
+            adjustments.add(new CartAdjustment(description, Money.times(savings.get(rule), times)));
+        }
+        return adjustments;
+    }
+
+    // A bundle flattened into parallel arrays, one entry per distinct product
+    private static final class Rule {
+        final String bundleId;
+        final String name;
+        final String[] productIds;
+        final int[] required;
+        final long[] bundlePriceCents; // per unit
+
+        Rule(Bundle bundle) {
+            this.bundleId = bundle.getBundleId();
+            this.name = bundle.getName();
+            Map<String, int[]> qty = new LinkedHashMap<>();
+            Map<String, long[]> cost = new LinkedHashMap<>();
+            for (Discount d : bundle.getComponents()) {
+                if (d.getProductId() == null || d.getQuantity() <= 0) {
+                    continue;
+                }
+                qty.computeIfAbsent(d.getProductId(), k -> new int[1])[0] += d.getQuantity();
+                cost.computeIfAbsent(d.getProductId(), k -> new long[1])[0] += Money.times(Money.ofDouble(d.getPrice()), d.getQuantity());
+            }
+            int n = qty.size();
+            productIds = qty.keySet().toArray(new String[0]);
+            required = new int[n];
+            bundlePriceCents = new long[n];
+            for (int i = 0; i < n; i++) {
+                required[i] = qty.get(productIds[i])[0];
+                // Same product listed twice at different prices: use the average per unit
+                bundlePriceCents[i] = cost.get(productIds[i])[0] / required[i];
+            }
+        }
+
+        // How many whole copies of the bundle the quantities can fill
+        int timesFilled(Map<String, Integer> quantities) {
+            int times = Integer.MAX_VALUE;
+            for (int i = 0; i < productIds.length; i++) {
+                Integer have = quantities.get(productIds[i]);
+                if (have == null || have < required[i]) {
+                    return 0;
+                }
+                times = Math.min(times, have / required[i]);
+            }
+            return times;
+        }
+
+        long savingCents(Map<String, Product> products, Map<String, Integer> quantities) {
+            long saving = 0;
+            for (int i = 0; i < productIds.length; i++) {
+                Product p = products.get(productIds[i]);
+                if (p == null) {
+                    return 0;
+                }
+                long unitCents = p.getUnitPriceCents(quantities.get(productIds[i]));
+                saving += Money.times(unitCents - bundlePriceCents[i], required[i]);
+            }
+            return saving;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package bookshop.strategy;
+
+/**
+ * A discount that applies to the cart as a whole rather than to one line,
+ * e.g. a matched bundle. Amounts are in cents.
+ */
+public final class CartAdjustment {
+    private final String description;
+    private final long discountCents;
+
+    public CartAdjustment(String description, long discountCents) {
+        this.description = description;
+        this.discountCents = discountCents;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getDiscountCents() {
+        return discountCents;
+    }
+}
@@ -0,0 +1,21 @@
+package bookshop.strategy;
+
+import java.util.List;
+import java.util.Map;
+
+import bookshop.model.Customer;
+import bookshop.model.Product;
+
+/**
+ * A pricing step that looks at the whole cart at once (for promotions spanning
+ * several products). Runs after every line has been priced by the DiscountStrategy chain.
+ */
+public interface CartDiscountStrategy {
+    /**
+     * @param products Product id -> product, for every line in the cart.
+     * @param quantities Product id -> quantity, for every line in the cart.
+     * @param customer The customer, or null for a guest.
+     * @return The discounts to take off the cart total; empty if none apply.
+     */
+    List<CartAdjustment> apply(Map<String, Product> products, Map<String, Integer> quantities, Customer customer);
+}
@@ -3,6 +3,19 @@ package bookshop.strategy;
 import bookshop.model.Customer;
 import bookshop.model.Product;
 
+/**
+ * One step of the billing pipeline. Amounts are whole cents (see bookshop.util.Money).
+ */
 public interface DiscountStrategy {
-    double applyDiscount(double currentTotal, Product product, int quantity, Customer customer);
+    long applyDiscount(long currentTotalCents, Product product, int quantity, Customer customer);
+
+    /**
+     * Returns this step specialised for one product and customer, so checks that only depend
+     * on them run once instead of on every call. BillingService caches the result until the
+     * product's pricing changes.
+     * @return The specialised step, or null if the step never changes the total for this pair.
+     */
+    default DiscountStrategy specialise(Product product, Customer customer) {
+        return this;
+    }
 }
@@ -2,31 +2,41 @@ package bookshop.strategy;
 
 import bookshop.model.Customer;
 import bookshop.model.Product;
+import bookshop.util.Money;
 
 public class VIPDiscountStrategy implements DiscountStrategy {
 
     @Override
-    public double applyDiscount(double currentTotal, Product product, int quantity, Customer customer) {
+    public long applyDiscount(long currentTotalCents, Product product, int quantity, Customer customer) {
         // Apply VIP discount if applicable
         // This strategy applies on top of the current total
-        
-        if (customer != null && "VIP".equalsIgnoreCase(customer.getType())) {
-            // VIPs get an additional discount. 
-            // In the original code, VIPCustomer had a 5% discount (0.05).
-            // We can hardcode it here or get it from the customer if we add a field.
-            // For now, let's use the logic that was in VIPCustomer.
-            
-            double discountRate = 0.05; // 5%
-            // Or use customer.getBaseDiscountRate() if that's what it's for?
-            // Customer class has 'baseDiscountRate'. Let's check if we should use that.
-            
-            if (customer.getBaseDiscountRate() > 0) {
-                discountRate = customer.getBaseDiscountRate();
-            }
-            
-            return currentTotal * (1.0 - discountRate);
+        double discountRate = rateFor(customer);
+        if (discountRate > 0) {
+            return applyRate(currentTotalCents, discountRate);
         }
-        
-        return currentTotal;
+        return currentTotalCents;
+    }
+
+    @Override
+    public DiscountStrategy specialise(Product product, Customer customer) {
+        // The type check happens once here; the compiled step only applies the rate
+        double discountRate = rateFor(customer);
+        if (discountRate <= 0) {
+            return null;
+        }
+        return (total, p, q, c) -> applyRate(total, discountRate);
+    }
+
+    // VIPs get the customer's base discount rate, or 5% (the original VIPCustomer rate) if none is set
+    private static double rateFor(Customer customer) {
+        if (customer == null || !"VIP".equalsIgnoreCase(customer.getType())) {
+            return 0;
+        }
+        return customer.getBaseDiscountRate() > 0 ? customer.getBaseDiscountRate() : 0.05;
+    }
+
+    // Round the discount (not the total) to the cent, so it matches what the receipt shows
+    private static long applyRate(long totalCents, double rate) {
+        return totalCents - Money.percentOf(totalCents, rate);
     }
 }
@@ -0,0 +1,170 @@
+package bookshop.util;
+
+/**
+ * A reusable view over a single parsed CSV row.
+ * FileHandler hands the same instance to the callback for every row, so values
+ * must be read out (via get/getInt/getDouble/getCents) before the callback returns.
+ * Fields are stored as offsets into one shared char buffer; no line String or
+ * split array is created per row.
+ */
+public final class CsvRow {
+    private char[] chars = new char[256];
+    private int length;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fieldCount;
+    private int fieldStart;
+    private int lineNumber;
+
+    CsvRow() {}
+
+    // --- Parser side (package-private, used by FileHandler) ---
+
+    void append(char c) {
+        if (length == chars.length) {
+            char[] grown = new char[chars.length * 2];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+        chars[length++] = c;
+    }
+
+    void endField() {
+        if (fieldCount == starts.length) {
+            int[] s = new int[starts.length * 2];
+            int[] e = new int[ends.length * 2];
+            System.arraycopy(starts, 0, s, 0, fieldCount);
+            System.arraycopy(ends, 0, e, 0, fieldCount);
+            starts = s;
+            ends = e;
+        }
+        starts[fieldCount] = fieldStart;
+        ends[fieldCount] = length;
+        fieldCount++;
+        fieldStart = length;
+    }
+
+    void reset(int lineNumber) {
+        this.length = 0;
+        this.fieldCount = 0;
+        this.fieldStart = 0;
+        this.lineNumber = lineNumber;
+    }
+
+    boolean isBlank() {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- Reader side ---
+
+    /**
+     * @return The 1-based line number of this row in the source file.
+     */
+    public int lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return The number of fields in this row.
+     */
+    public int size() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns a field with surrounding whitespace and quotes removed.
+     * @param index The 0-based field index.
+     * @return The field value, or an empty string if the index is out of range.
+     */
+    public String get(int index) {
+        if (index < 0 || index >= fieldCount) {
+            return "";
+        }
+        int s = trimStart(index);
+        int e = trimEnd(index, s);
+        if (e - s >= 2 && chars[s] == '"' && chars[e - 1] == '"') {
+            s++;
+            e--;
+        }
+        return new String(chars, s, e - s);
+    }
+
+    /**
+     * Parses an integer field directly from the row buffer.
+     * @param index The 0-based field index.
+     * @param defaultValue Returned when the field is missing or not a valid integer.
+     * @return The parsed value or the default.
+     */
+    public int getInt(int index, int defaultValue) {
+        if (index < 0 || index >= fieldCount) {
+            return defaultValue;
+        }
+        int s = trimStart(index);
+        int e = trimEnd(index, s);
+        if (s == e) {
+            return defaultValue;
+        }
+        boolean negative = false;
+        if (chars[s] == '-' || chars[s] == '+') {
+            negative = chars[s] == '-';
+            s++;
+            if (s == e) {
+                return defaultValue;
+            }
+        }
+        long value = 0;
+        for (int i = s; i < e; i++) {
+            char c = chars[i];
+            if (c < '0' || c > '9') {
+                return defaultValue;
+            }
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return defaultValue;
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            return defaultValue;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a decimal field.
+     * @param index The 0-based field index.
+     * @return The parsed value.
+     * @throws NumberFormatException If the field is missing or not a valid number.
+     */
+    public double getDouble(int index) {
+        return Double.parseDouble(get(index));
+    }
+
+    /**
+     * Parses a money field into cents (see {@link Money#parse(CharSequence)}).
+     * @param index The 0-based field index.
+     * @return The amount in cents.
+     * @throws NumberFormatException If the field is missing or not a valid amount.
+     */
+    public long getCents(int index) {
+        return Money.parse(get(index));
+    }
+
+    private int trimStart(int index) {
+        int s = starts[index];
+        int e = ends[index];
+        while (s < e && Character.isWhitespace(chars[s])) s++;
+        return s;
+    }
+
+    private int trimEnd(int index, int s) {
+        int e = ends[index];
+        while (e > s && Character.isWhitespace(chars[e - 1])) e--;
+        return e;
+    }
+}
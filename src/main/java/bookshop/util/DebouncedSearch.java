@@ -0,0 +1,107 @@
+package bookshop.util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a search-as-you-type query off the UI thread.
+ *
+ * Each {@link #submit} waits for a short pause in typing, then runs the query on a
+ * background thread and hands the result to the publisher (Platform::runLater in the
+ * screens). A newer submit cancels the pending or running query, and a result is only
+ * published if no newer submit arrived meanwhile, so the screen never shows stale matches.
+ *
+ * @param <R> Result type of the query.
+ */
+public class DebouncedSearch<R> {
+    // Shared by every search box; two threads so product and customer lookups never queue behind each other
+    private static final ScheduledExecutorService SEARCHER = createSearcher();
+
+    private final Function<String, R> query;
+    private final Consumer<R> onResult;
+    private final Executor publisher;
+    private final long delayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong generation = new AtomicLong();
+    private Future<?> pending;
+
+    /**
+     * @param query Runs on a background thread; should not touch UI nodes.
+     * @param onResult Receives the latest result, on the publisher.
+     * @param publisher Where results are delivered, e.g. {@code Platform::runLater}.
+     * @param delayMillis Pause in typing before the query runs.
+     */
+    public DebouncedSearch(Function<String, R> query, Consumer<R> onResult, Executor publisher, long delayMillis) {
+        this(query, onResult, publisher, delayMillis, SEARCHER);
+    }
+
+    DebouncedSearch(Function<String, R> query, Consumer<R> onResult, Executor publisher,
+                    long delayMillis, ScheduledExecutorService scheduler) {
+        this.query = query;
+        this.onResult = onResult;
+        this.publisher = publisher;
+        this.delayMillis = delayMillis;
+        this.scheduler = scheduler;
+    }
+
+    private static ScheduledExecutorService createSearcher() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(2, r -> {
+            Thread t = new Thread(r, "SearchThread");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * Schedules a query for {@code input}, replacing any earlier one that has not been published.
+     */
+    public synchronized void submit(String input) {
+        long id = generation.incrementAndGet();
+        cancelPending();
+        pending = scheduler.schedule(() -> run(id, input), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Drops the pending or running query, e.g. when the field is cleared.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private void run(long id, String input) {
+        if (id != generation.get()) {
+            return;
+        }
+        R result;
+        try {
+            result = query.apply(input);
+        } catch (RuntimeException e) {
+            System.err.println("[DebouncedSearch] Search for '" + input + "' failed: " + e.getMessage());
+            return;
+        }
+        // Checked again on the publisher: a keystroke may have arrived while this was queued
+        if (id == generation.get()) {
+            publisher.execute(() -> {
+                if (id == generation.get()) {
+                    onResult.accept(result);
+                }
+            });
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package bookshop.util;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,6 +36,106 @@ public final class FileHandler {
         return Files.readAllLines(p, StandardCharsets.UTF_8);
     }
 
+    /**
+     * Callback invoked once per row by {@link #readCsv(String, boolean, CsvRowHandler)}.
+     */
+    @FunctionalInterface
+    public interface CsvRowHandler {
+        void handle(CsvRow row) throws IOException;
+    }
+
+    /**
+     * Callback invoked once per discount rule, with the unit price in cents.
+     */
+    @FunctionalInterface
+    public interface DiscountRuleHandler {
+        void handle(int quantity, long priceCents);
+    }
+
+    /**
+     * Streams a CSV file row by row without loading it into memory.
+     * Fields are scanned straight from a buffered channel reader; commas inside
+     * double quotes do not split a field. Blank lines are skipped.
+     * The same {@link CsvRow} instance is reused for every row.
+     * @param filePath The path to the CSV file. A missing file yields no rows.
+     * @param skipHeader If true, the first line of the file is not passed to the handler.
+     * @param handler Called for each data row.
+     * @throws IOException If an I/O error occurs or the handler throws one.
+     */
+    public static void readCsv(String filePath, boolean skipHeader, CsvRowHandler handler) throws IOException {
+        readCsv(filePath, skipHeader, true, handler);
+    }
+
+    /**
+     * Like {@link #readCsv(String, boolean, CsvRowHandler)}, but a newline always ends the row,
+     * even inside double quotes. For logs, where a torn line with an open quote must not
+     * swallow the records after it.
+     */
+    public static void readCsvLines(String filePath, boolean skipHeader, CsvRowHandler handler) throws IOException {
+        readCsv(filePath, skipHeader, false, handler);
+    }
+
+    /**
+     * {@link #readCsvLines(String, boolean, CsvRowHandler)} over text already at hand,
+     * e.g. the records appended to a log since it was last read. The reader is not closed.
+     */
+    public static void readCsvLines(Reader in, CsvRowHandler handler) throws IOException {
+        readCsv(in, false, false, handler);
+    }
+
+    private static void readCsv(String filePath, boolean skipHeader, boolean quotesSpanLines,
+                                CsvRowHandler handler) throws IOException {
+        Path p = Paths.get(filePath);
+        if (!Files.exists(p)) {
+            return;
+        }
+        try (Reader in = Channels.newReader(FileChannel.open(p, StandardOpenOption.READ), StandardCharsets.UTF_8)) {
+            readCsv(in, skipHeader, quotesSpanLines, handler);
+        }
+    }
+
+    private static void readCsv(Reader in, boolean skipHeader, boolean quotesSpanLines,
+                                CsvRowHandler handler) throws IOException {
+        char[] buf = new char[8192];
+        CsvRow row = new CsvRow();
+        int lineNumber = 1;
+        boolean inQuotes = false;
+        row.reset(lineNumber);
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            for (int i = 0; i < n; i++) {
+                char c = buf[i];
+                if (inQuotes && (quotesSpanLines || c != '\n')) {
+                    if (c == '"') inQuotes = false;
+                    row.append(c);
+                } else if (c == '"') {
+                    inQuotes = true;
+                    row.append(c);
+                } else if (c == ',') {
+                    row.endField();
+                } else if (c == '\n') {
+                    emitRow(row, skipHeader, handler);
+                    row.reset(++lineNumber);
+                    inQuotes = false;
+                } else if (c != '\r') {
+                    row.append(c);
+                }
+            }
+        }
+        emitRow(row, skipHeader, handler);
+    }
+
+    private static void emitRow(CsvRow row, boolean skipHeader, CsvRowHandler handler) throws IOException {
+        if (skipHeader && row.lineNumber() == 1) {
+            return;
+        }
+        if (row.size() == 0 && row.isBlank()) {
+            return;
+        }
+        row.endField();
+        handler.handle(row);
+    }
+
     public static void appendLine(String filePath, String line) throws IOException {
         Path p = Paths.get(filePath);
         if (p.getParent() != null && !Files.exists(p.getParent())) {
@@ -56,6 +160,28 @@ public final class FileHandler {
         }
     }
 
+    /**
+     * Writes all lines to a temporary file and then atomically replaces the target,
+     * so readers never observe a half-written file.
+     * @param filePath The path to the CSV file.
+     * @param lines The lines to write.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void writeCsvAtomic(String filePath, List<String> lines) throws IOException {
+        Path p = Paths.get(filePath);
+        if (p.getParent() != null && !Files.exists(p.getParent())) {
+            Files.createDirectories(p.getParent());
+        }
+        Path tmp = Paths.get(filePath + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (String line : lines) {
+                out.write(line);
+                out.write(System.lineSeparator());
+            }
+        }
+        Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
     /**
      * Sanitizes a CSV field to prevent CSV injection.
      * Prepends a single quote if the field starts with =, +, -, or @.
@@ -73,8 +199,17 @@ public final class FileHandler {
 
     public static Map<Integer, Double> parseDiscountString(String discounts) {
         Map<Integer, Double> discountMap = new HashMap<>();
+        parseDiscountRules(discounts, (quantity, priceCents) -> discountMap.put(quantity, Money.toDouble(priceCents)));
+        return discountMap;
+    }
+
+    /**
+     * Parses "qty:price;qty:price", handing each rule to the handler with its price in cents.
+     * Malformed rules are skipped with a warning.
+     */
+    public static void parseDiscountRules(String discounts, DiscountRuleHandler handler) {
         if (discounts == null || discounts.trim().isEmpty()) {
-            return discountMap;
+            return;
         }
         String[] rules = discounts.split(";");
         for (String rule : rules) {
@@ -82,14 +217,13 @@ public final class FileHandler {
             if (parts.length == 2) {
                 try {
                     int quantity = Integer.parseInt(parts[0].trim());
-                    double price = Double.parseDouble(parts[1].trim());
-                    discountMap.put(quantity, price);
+                    long priceCents = Money.parse(parts[1]);
+                    handler.handle(quantity, priceCents);
                 } catch (NumberFormatException e) {
                     System.err.println("Warning: Could not parse discount rule part: " + rule + " - " + e.getMessage());
                 }
             }
         }
-        return discountMap;
     }
 
     public static String serializeDiscountMap(Map<Integer, Double> discountRules) {
@@ -98,7 +232,8 @@ public final class FileHandler {
         }
         StringBuilder sb = new StringBuilder();
         for (Map.Entry<Integer, Double> entry : discountRules.entrySet()) {
-            sb.append(entry.getKey()).append(":").append(entry.getValue()).append(";");
+            sb.append(entry.getKey()).append(':');
+            Money.appendTo(sb, Money.ofDouble(entry.getValue())).append(';');
         }
         // Remove the trailing semicolon if it exists
         if (sb.length() > 0) {
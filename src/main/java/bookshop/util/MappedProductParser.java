@@ -0,0 +1,389 @@
+package bookshop.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Low-allocation parser for products.csv.
+ * The file is read into one heap buffer and each row is scanned as byte offsets into it.
+ * Prices (as cents), quantities and discount rules are decoded straight from the bytes; id and
+ * name Strings are only created when {@link Row#productId()} / {@link Row#name()} are called.
+ *
+ * Expected layout: product_id,product_name,real_price,"discounts",quantity
+ *
+ * The file is not memory-mapped: a mapping stays open until it is garbage collected,
+ * and on Windows that makes replacing products.csv with a new snapshot fail.
+ */
+public final class MappedProductParser {
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private MappedProductParser() {}
+
+    /**
+     * Callback invoked once per data row. The row is reused between calls.
+     */
+    @FunctionalInterface
+    public interface RowHandler {
+        void handle(Row row) throws IOException;
+    }
+
+    /**
+     * Parses a products CSV file, skipping the header row.
+     * @param path The file to parse. A missing file yields no rows.
+     * @param handler Called for each non-blank data row.
+     * @throws IOException If the file cannot be read or the handler throws one.
+     */
+    public static void parse(Path path, RowHandler handler) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Products file too large to load: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                // keep reading until the buffer is full
+            }
+            buffer.flip();
+            parse(buffer, handler);
+        }
+    }
+
+    /**
+     * Parses products CSV content from a buffer, skipping the header row.
+     * Reads use absolute indexes, so the buffer's position is left untouched.
+     */
+    public static void parse(ByteBuffer buffer, RowHandler handler) throws IOException {
+        Row row = new Row(buffer);
+        int limit = buffer.limit();
+        int pos = buffer.position();
+        boolean header = true;
+        while (pos < limit) {
+            int lineEnd = row.scan(pos, limit);
+            if (header) {
+                header = false;
+            } else if (!row.isBlank()) {
+                handler.handle(row);
+            }
+            pos = lineEnd + 1;
+        }
+    }
+
+    /**
+     * A reusable view over one row of the file.
+     */
+    public static final class Row {
+        private final ByteBuffer buf;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private int fieldCount;
+        private byte[] scratch = new byte[64];
+
+        private Row(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * Records field offsets for the line starting at {@code from}.
+         * @return The index of the terminating newline, or {@code limit} at end of input.
+         */
+        private int scan(int from, int limit) {
+            fieldCount = 0;
+            int fieldStart = from;
+            boolean inQuotes = false;
+            int i = from;
+            for (; i < limit; i++) {
+                byte b = buf.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes && b == ',') {
+                    addField(fieldStart, i);
+                    fieldStart = i + 1;
+                } else if (!inQuotes && b == '\n') {
+                    break;
+                }
+            }
+            int end = i;
+            if (end > fieldStart && buf.get(end - 1) == '\r') {
+                end--;
+            }
+            addField(fieldStart, end);
+            return i;
+        }
+
+        private void addField(int start, int end) {
+            if (fieldCount == starts.length) {
+                int[] s = new int[starts.length * 2];
+                int[] e = new int[ends.length * 2];
+                System.arraycopy(starts, 0, s, 0, fieldCount);
+                System.arraycopy(ends, 0, e, 0, fieldCount);
+                starts = s;
+                ends = e;
+            }
+            // Trim whitespace and one pair of surrounding quotes
+            while (start < end && isSpace(buf.get(start))) start++;
+            while (end > start && isSpace(buf.get(end - 1))) end--;
+            if (end - start >= 2 && buf.get(start) == '"' && buf.get(end - 1) == '"') {
+                start++;
+                end--;
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            fieldCount++;
+        }
+
+        private boolean isBlank() {
+            for (int f = 0; f < fieldCount; f++) {
+                if (ends[f] > starts[f]) return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return The number of fields in this row.
+         */
+        public int fieldCount() {
+            return fieldCount;
+        }
+
+        /**
+         * @return The product id (column 0), decoded on demand.
+         */
+        public String productId() {
+            return string(0);
+        }
+
+        /**
+         * @return The product name (column 1), decoded on demand.
+         */
+        public String name() {
+            return string(1);
+        }
+
+        /**
+         * Decodes the price column without creating an intermediate String.
+         * @throws NumberFormatException If the column is missing or not a valid number.
+         */
+        public double realPrice() {
+            if (fieldCount < 3) {
+                throw new NumberFormatException("Missing price column");
+            }
+            return parseDouble(starts[2], ends[2]);
+        }
+
+        /**
+         * Decodes the price column as a whole number of cents, exactly.
+         * @throws NumberFormatException If the column is missing or not a valid amount.
+         */
+        public long realPriceCents() {
+            if (fieldCount < 3) {
+                throw new NumberFormatException("Missing price column");
+            }
+            return parseCents(starts[2], ends[2]);
+        }
+
+        /**
+         * @return The quantity column, or 0 if it is missing or not a valid integer.
+         */
+        public int quantity() {
+            if (fieldCount < 5) {
+                return 0;
+            }
+            long v = parseLong(starts[4], ends[4]);
+            return v == Long.MIN_VALUE || v > Integer.MAX_VALUE || v < Integer.MIN_VALUE ? 0 : (int) v;
+        }
+
+        /**
+         * Decodes the discounts column ("qty:price;qty:price") straight from the bytes,
+         * handing each rule to the handler with its price in cents. Nothing is boxed.
+         * Malformed rules are skipped with a warning, as in FileHandler.parseDiscountString.
+         */
+        public void forEachDiscountRule(FileHandler.DiscountRuleHandler handler) {
+            if (fieldCount < 4) {
+                return;
+            }
+            int end = ends[3];
+            int ruleStart = starts[3];
+            while (ruleStart < end) {
+                int ruleEnd = ruleStart;
+                int colon = -1;
+                int colons = 0;
+                while (ruleEnd < end && buf.get(ruleEnd) != ';') {
+                    if (buf.get(ruleEnd) == ':') {
+                        colon = ruleEnd;
+                        colons++;
+                    }
+                    ruleEnd++;
+                }
+                if (colons == 1) {
+                    try {
+                        long qty = parseLong(ruleStart, colon);
+                        if (qty == Long.MIN_VALUE || qty > Integer.MAX_VALUE || qty < Integer.MIN_VALUE) {
+                            throw new NumberFormatException("For input string: \"" + string(ruleStart, colon).trim() + "\"");
+                        }
+                        handler.handle((int) qty, parseCents(colon + 1, ruleEnd));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Warning: Could not parse discount rule part: " + string(ruleStart, ruleEnd) + " - " + e.getMessage());
+                    }
+                }
+                ruleStart = ruleEnd + 1;
+            }
+        }
+
+        /**
+         * @return The discount rules (quantity -> unit price) as a map.
+         * @see #forEachDiscountRule(FileHandler.DiscountRuleHandler)
+         */
+        public Map<Integer, Double> discountRules() {
+            Map<Integer, Double> rules = new HashMap<>();
+            forEachDiscountRule((qty, cents) -> rules.put(qty, Money.toDouble(cents)));
+            return rules;
+        }
+
+        private String string(int field) {
+            if (field >= fieldCount) {
+                return "";
+            }
+            return string(starts[field], ends[field]);
+        }
+
+        private String string(int s, int e) {
+            int len = e - s;
+            if (len > scratch.length) {
+                scratch = new byte[Math.max(len, scratch.length * 2)];
+            }
+            for (int i = 0; i < len; i++) {
+                scratch[i] = buf.get(s + i);
+            }
+            return new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Parses a trimmed, optionally signed run of digits.
+         * @return The value, or Long.MIN_VALUE if the bytes are not a valid integer.
+         */
+        private long parseLong(int s, int e) {
+            while (s < e && isSpace(buf.get(s))) s++;
+            while (e > s && isSpace(buf.get(e - 1))) e--;
+            if (s == e) return Long.MIN_VALUE;
+            boolean negative = false;
+            byte first = buf.get(s);
+            if (first == '-' || first == '+') {
+                negative = first == '-';
+                if (++s == e) return Long.MIN_VALUE;
+            }
+            if (e - s > 18) return Long.MIN_VALUE;
+            long v = 0;
+            for (int i = s; i < e; i++) {
+                byte b = buf.get(i);
+                if (b < '0' || b > '9') return Long.MIN_VALUE;
+                v = v * 10 + (b - '0');
+            }
+            return negative ? -v : v;
+        }
+
+        /**
+         * Parses a plain decimal ("-12.50") directly. Anything unusual (exponents,
+         * more than 15 significant digits) falls back to Double.parseDouble so the
+         * result always matches the String-based parser.
+         */
+        private double parseDouble(int s, int e) {
+            while (s < e && isSpace(buf.get(s))) s++;
+            while (e > s && isSpace(buf.get(e - 1))) e--;
+            int i = s;
+            boolean negative = false;
+            if (i < e && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negative = buf.get(i) == '-';
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean anyDigit = false;
+            boolean seenDot = false;
+            boolean simple = true;
+            for (; i < e && simple; i++) {
+                byte b = buf.get(i);
+                if (b >= '0' && b <= '9') {
+                    anyDigit = true;
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) digits++;
+                    if (seenDot) scale++;
+                } else if (b == '.' && !seenDot) {
+                    seenDot = true;
+                } else {
+                    simple = false;
+                }
+            }
+            if (!simple || !anyDigit || digits > 15 || scale >= POW10.length) {
+                return Double.parseDouble(string(s, e));
+            }
+            double v = mantissa / POW10[scale];
+            return negative ? -v : v;
+        }
+
+        /**
+         * Byte-level counterpart of Money.parse for plain decimals ("12.50").
+         * Anything else is handed to Money.parse, which handles exponents and reports errors.
+         */
+        private long parseCents(int s, int e) {
+            while (s < e && isSpace(buf.get(s))) s++;
+            while (e > s && isSpace(buf.get(e - 1))) e--;
+            int i = s;
+            boolean negative = false;
+            if (i < e && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negative = buf.get(i) == '-';
+                i++;
+            }
+            long cents = 0;
+            int whole = 0;
+            int fraction = -1;
+            boolean roundUp = false;
+            for (; i < e; i++) {
+                byte b = buf.get(i);
+                if (b >= '0' && b <= '9') {
+                    if (fraction < 0) {
+                        if (++whole > 15) return Money.parse(string(s, e));
+                        cents = cents * 10 + (b - '0');
+                    } else if (fraction < 2) {
+                        cents = cents * 10 + (b - '0');
+                        fraction++;
+                    } else if (fraction == 2) {
+                        roundUp = b >= '5';
+                        fraction++;
+                    }
+                } else if (b == '.' && fraction < 0) {
+                    fraction = 0;
+                } else {
+                    return Money.parse(string(s, e));
+                }
+            }
+            if (whole == 0 && fraction <= 0) {
+                return Money.parse(string(s, e)); // no digits at all
+            }
+            for (int f = Math.max(fraction, 0); f < 2; f++) {
+                cents *= 10;
+            }
+            if (roundUp) {
+                cents++;
+            }
+            return negative ? -cents : cents;
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+    }
+}
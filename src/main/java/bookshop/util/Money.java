@@ -0,0 +1,149 @@
+package bookshop.util;
+
+/**
+ * Fixed-point money helpers. Amounts are held as a {@code long} number of cents,
+ * so totals add up exactly and never drift the way repeated double arithmetic does.
+ *
+ * Formatting writes digits directly instead of going through java.util.Formatter,
+ * and always uses '.' as the decimal separator regardless of the default locale.
+ */
+public final class Money {
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {}
+
+    /**
+     * Converts a double amount (e.g. from a legacy caller) to cents, rounding half away from zero.
+     */
+    public static long ofDouble(double amount) {
+        return Math.round(amount * CENTS_PER_UNIT);
+    }
+
+    /**
+     * @return The amount as a double, for display code and callers that still expect one.
+     */
+    public static double toDouble(long cents) {
+        return cents / (double) CENTS_PER_UNIT;
+    }
+
+    /**
+     * Parses a decimal amount ("12", "12.5", "-0.99") into cents.
+     * Digits past the second decimal place round half away from zero.
+     * @throws NumberFormatException If the text is not a valid amount.
+     */
+    public static long parse(CharSequence text) {
+        if (text == null) {
+            throw new NumberFormatException("null");
+        }
+        return parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses {@code text[start, end)} into cents without creating a substring.
+     * Exponent forms ("1e3") fall back to Double.parseDouble.
+     * @throws NumberFormatException If the text is not a valid amount.
+     */
+    public static long parse(CharSequence text, int start, int end) {
+        int s = start;
+        int e = end;
+        while (s < e && Character.isWhitespace(text.charAt(s))) s++;
+        while (e > s && Character.isWhitespace(text.charAt(e - 1))) e--;
+        int i = s;
+        boolean negative = false;
+        if (i < e && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long cents = 0;
+        int fraction = -1; // digits seen after the dot, -1 before it
+        boolean anyDigit = false;
+        boolean roundUp = false;
+        for (; i < e; i++) {
+            char ch = text.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                anyDigit = true;
+                if (fraction < 0) {
+                    if (cents >= Long.MAX_VALUE / 1000) {
+                        throw new NumberFormatException("Amount out of range: \"" + text.subSequence(s, e) + "\"");
+                    }
+                    cents = cents * 10 + (ch - '0');
+                } else if (fraction < 2) {
+                    cents = cents * 10 + (ch - '0');
+                    fraction++;
+                } else if (fraction == 2) {
+                    roundUp = ch >= '5';
+                    fraction++;
+                }
+            } else if (ch == '.' && fraction < 0) {
+                fraction = 0;
+            } else if (ch == 'e' || ch == 'E') {
+                return ofDouble(Double.parseDouble(text.subSequence(s, e).toString()));
+            } else {
+                throw new NumberFormatException("For input string: \"" + text.subSequence(s, e) + "\"");
+            }
+        }
+        if (!anyDigit) {
+            throw new NumberFormatException("For input string: \"" + text.subSequence(s, e) + "\"");
+        }
+        // Scale up to whole cents when fewer than two decimals were given
+        for (int f = Math.max(fraction, 0); f < 2; f++) {
+            cents *= 10;
+        }
+        if (roundUp) {
+            cents++;
+        }
+        return negative ? -cents : cents;
+    }
+
+    /**
+     * @return {@code rate} of the amount (e.g. 0.05 for 5%), rounded to the nearest cent.
+     */
+    public static long percentOf(long cents, double rate) {
+        return Math.round(cents * rate);
+    }
+
+    /**
+     * @return The unit amount multiplied by a quantity.
+     * @throws ArithmeticException If the result overflows.
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /**
+     * Appends the amount as "-1234.50" to the builder. Allocates nothing beyond
+     * whatever the builder needs to grow.
+     */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        long units = cents / CENTS_PER_UNIT;
+        int rem = (int) Math.abs(cents % CENTS_PER_UNIT);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(Math.abs(units)).append('.');
+        return sb.append((char) ('0' + rem / 10)).append((char) ('0' + rem % 10));
+    }
+
+    /**
+     * @return The amount as "1234.50". One exact-size String; no Formatter involved.
+     */
+    public static String format(long cents) {
+        char[] buf = new char[21];
+        int pos = buf.length;
+        boolean negative = cents < 0;
+        long v = negative ? cents : -cents; // work in negatives so Long.MIN_VALUE is safe
+        int rem = (int) -(v % CENTS_PER_UNIT);
+        v /= CENTS_PER_UNIT;
+        buf[--pos] = (char) ('0' + rem % 10);
+        buf[--pos] = (char) ('0' + rem / 10);
+        buf[--pos] = '.';
+        do {
+            buf[--pos] = (char) ('0' - v % 10);
+            v /= 10;
+        } while (v != 0);
+        if (negative) {
+            buf[--pos] = '-';
+        }
+        return new String(buf, pos, buf.length - pos);
+    }
+}
@@ -0,0 +1,220 @@
+package bookshop.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only log of CSV records sitting next to a snapshot file.
+ * Each append costs one small write regardless of how big the snapshot is.
+ *
+ * Positions handed out by {@link #position()} are logical: they keep growing across
+ * {@link #truncateBefore(long)}, so a position captured before a snapshot was written
+ * still identifies the same record boundary afterwards.
+ *
+ * Every record is one line. A record torn by a crash mid-append is cut off when the log
+ * is opened, so the next append starts on a fresh line instead of continuing the torn one.
+ *
+ * Records another process appends to the same file are picked up by {@link #replayAppended},
+ * and a file that process compacted or replaced is started over with {@link #reopen()}.
+ */
+public final class WriteAheadLog {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final String filePath;
+    private final Path path;
+    private long base;     // logical offset of the first byte currently in the file
+    private long length;   // current file length in bytes
+    private int records;   // records currently in the file
+
+    public WriteAheadLog(String filePath) throws IOException {
+        this.filePath = filePath;
+        this.path = Paths.get(filePath);
+        this.length = Files.exists(path) ? dropTornTail(path) : 0L;
+    }
+
+    /**
+     * Truncates the file just past its last newline, dropping a record whose append never finished.
+     * @return The resulting file length.
+     */
+    private static long dropTornTail(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            long size = channel.size();
+            ByteBuffer block = ByteBuffer.allocate(4096);
+            long end = size;
+            while (end > 0) {
+                long start = Math.max(0, end - block.capacity());
+                block.clear().limit((int) (end - start));
+                while (block.hasRemaining() && channel.read(block, start + block.position()) > 0) {
+                    // fill the block
+                }
+                for (int i = block.position() - 1; i >= 0; i--) {
+                    if (block.get(i) == '\n') {
+                        long keep = start + i + 1;
+                        if (keep < size) {
+                            System.err.println("[WriteAheadLog] Dropping torn record at the end of " + path);
+                            channel.truncate(keep);
+                        }
+                        return keep;
+                    }
+                }
+                end = start;
+            }
+            if (size > 0) {
+                System.err.println("[WriteAheadLog] Dropping torn record at the end of " + path);
+                channel.truncate(0);
+            }
+            return 0L;
+        }
+    }
+
+    /**
+     * Replays every record in the log, oldest first.
+     * Also re-counts the records so {@link #recordCount()} is accurate after startup.
+     */
+    public synchronized void replay(FileHandler.CsvRowHandler handler) throws IOException {
+        records = 0;
+        FileHandler.readCsvLines(filePath, false, row -> {
+            records++;
+            handler.handle(row);
+        });
+    }
+
+    /**
+     * Replays the complete records appended to the file by someone else since this log last
+     * read or wrote it, oldest first. A record still being written is left for the next call.
+     * @return The number of records replayed.
+     */
+    public synchronized int replayAppended(FileHandler.CsvRowHandler handler) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        byte[] appended;
+        // Shared with other readers but not with appenders, so a batch is never read half-written
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             FileLock lock = channel.lock(0L, Long.MAX_VALUE, true)) {
+            long size = channel.size();
+            if (size <= length) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) (size - length));
+            while (buffer.hasRemaining() && channel.read(buffer, length + buffer.position()) > 0) {
+                // fill the buffer
+            }
+            appended = buffer.array();
+        }
+        int end = appended.length;
+        while (end > 0 && appended[end - 1] != '\n') {
+            end--;
+        }
+        if (end == 0) {
+            return 0;
+        }
+        int before = records;
+        FileHandler.readCsvLines(new InputStreamReader(new ByteArrayInputStream(appended, 0, end), StandardCharsets.UTF_8), row -> {
+            records++;
+            handler.handle(row);
+        });
+        length += end;
+        return records - before;
+    }
+
+    /**
+     * @return true if the file is shorter than this log last left it, i.e. someone else
+     *         compacted, replaced or deleted it and {@link #reopen()} is needed.
+     */
+    public synchronized boolean isRewritten() throws IOException {
+        long size = Files.exists(path) ? Files.size(path) : 0L;
+        return size < length;
+    }
+
+    /**
+     * Starts over from the file as it is now; follow with {@link #replay} to read it.
+     * Logical positions keep growing, so one captured earlier never matches a record of the new file.
+     */
+    public synchronized void reopen() throws IOException {
+        base += length;
+        length = Files.exists(path) ? dropTornTail(path) : 0L;
+        records = 0;
+    }
+
+    /**
+     * Appends one record (a single CSV line without separator).
+     * @return The logical position just past the new record.
+     */
+    public synchronized long append(String record) throws IOException {
+        FileHandler.appendLine(filePath, record);
+        length += record.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR.length;
+        records++;
+        return base + length;
+    }
+
+    /**
+     * Appends several records with a single write, so they reach the file together.
+     * @return The logical position just past the last new record.
+     */
+    public synchronized long appendAll(List<String> records) throws IOException {
+        String joined = String.join(System.lineSeparator(), records);
+        FileHandler.appendLine(filePath, joined);
+        length += joined.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR.length;
+        this.records += records.size();
+        return base + length;
+    }
+
+    /**
+     * @return The logical position just past the last record written.
+     */
+    public synchronized long position() {
+        return base + length;
+    }
+
+    /**
+     * @return The number of records in the log that have not been folded into a snapshot.
+     */
+    public synchronized int recordCount() {
+        return records;
+    }
+
+    /**
+     * Drops every record before the given logical position, keeping anything appended after it.
+     * Called once a snapshot containing those records has been safely written.
+     */
+    public synchronized void truncateBefore(long logicalPosition) throws IOException {
+        long cut = logicalPosition - base;
+        if (cut <= 0) {
+            return;
+        }
+        if (cut >= length) {
+            Files.deleteIfExists(path);
+            base = logicalPosition;
+            length = 0;
+            records = 0;
+            return;
+        }
+        // Only the tail written since the snapshot was captured is kept, so this copy stays small
+        byte[] all = Files.readAllBytes(path);
+        byte[] tail = Arrays.copyOfRange(all, (int) cut, all.length);
+        Path tmp = Paths.get(filePath + ".tmp");
+        Files.write(tmp, tail);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        base = logicalPosition;
+        // Anything past our own length was appended by someone else and is still to be replayed
+        length -= cut;
+        records = 0;
+        for (int i = 0; i < length; i++) {
+            if (tail[i] == '\n') records++;
+        }
+    }
+}
@@ -14,8 +14,9 @@ module bookshop {
     // Open the main package to JavaFX and testing
     opens bookshop;
     
-    // Open service package for testing
+    // Open service and util packages for testing
     opens bookshop.service;
+    opens bookshop.util;
 
     // Export the main package
     exports bookshop;
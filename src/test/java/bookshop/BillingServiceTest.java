@@ -3,8 +3,10 @@ package bookshop;
 import bookshop.exceptions.InvalidProductException;
 import bookshop.model.*;
 import bookshop.service.BillingService;
+import bookshop.service.CartPricing;
 import bookshop.service.CustomerService;
 import bookshop.service.ProductService;
+import bookshop.strategy.BundleDiscountStrategy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,7 +14,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -51,6 +56,8 @@ public class BillingServiceTest {
         when(productService.findProductByName("Test Book")).thenReturn(testProduct);
         // When a non-existent product is requested, throw an exception
         when(productService.findProductByName("Unknown Book")).thenThrow(new InvalidProductException("Product not found: Unknown Book"));
+        when(productService.findProductById("p01")).thenReturn(testProduct);
+        when(productService.findProductById("p02")).thenReturn(new Product("p02", "Pen", 12.5));
 
         // When customerService is asked for customer "c01", return the regular customer
         when(customerService.findCustomerById("c01")).thenReturn(regularCustomer);
@@ -89,4 +96,106 @@ public class BillingServiceTest {
     void testCalculateTotal_ProductNotFound() {
         assertThrows(InvalidProductException.class, () -> billingService.calculateTotal("Unknown Book", 1, "c01"));
     }
+
+    @Test
+    void testCalculateTotal_AfterDiscountRuleChanges() throws InvalidProductException {
+        testProduct.setDiscount(20, 70.0);
+        assertEquals(1400.0, billingService.calculateTotal("Test Book", 20, "c01")); // 20 * 70.0
+        testProduct.removeDiscount(10);
+        assertEquals(1140.0, billingService.calculateTotal("Test Book", 12, "c01")); // falls back to the 5+ tier
+        testProduct.clearDiscounts();
+        assertEquals(1200.0, billingService.calculateTotal("Test Book", 12, "c01"));
+    }
+
+    @Test
+    void testDiscountRules_SortedReadOnlyView() {
+        testProduct.setDiscount(1, 99.0);
+        Map<Integer, Double> rules = testProduct.getDiscountRules();
+        assertEquals(List.of(1, 5, 10), new ArrayList<>(rules.keySet()));
+        assertEquals(80.0, rules.get(10));
+        assertNull(rules.get(7));
+        assertThrows(UnsupportedOperationException.class, () -> rules.put(3, 50.0));
+        // A higher tier with a worse price never raises the price of a larger order
+        testProduct.setDiscount(50, 90.0);
+        assertEquals(80.0, testProduct.getUnitPrice(60));
+        assertEquals(100.0, testProduct.getUnitPrice(0));
+    }
+
+    @Test
+    void testCalculateTotal_CachedPricingFollowsPriceAndTierChanges() throws InvalidProductException {
+        assertEquals(400.0, billingService.calculateTotal("Test Book", 4, "c01"));
+        assertEquals(380.0, billingService.calculateTotal("Test Book", 4, "c02"));
+        testProduct.setRealPrice(50.0);
+        assertEquals(200.0, billingService.calculateTotal("Test Book", 4, "c01"));
+        assertEquals(190.0, billingService.calculateTotal("Test Book", 4, "c02"));
+        // Far-apart breakpoints price correctly on either side
+        testProduct.setDiscount(5000, 40.0);
+        assertEquals(4999 * 50.0, billingService.calculateTotal("Test Book", 4999, "c01"));
+        assertEquals(6000 * 40.0, billingService.calculateTotal("Test Book", 6000, "c01"));
+    }
+
+    @Test
+    void testPriceCart_LinesAndTotals() throws InvalidProductException {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        quantities.put("p01", 10);
+        quantities.put("p02", 3);
+        CartPricing cart = billingService.priceCart(quantities, "c02");
+
+        assertEquals(List.of("p01", "p02"), new ArrayList<>(cart.getQuantities().keySet()));
+        CartPricing.Line book = cart.getLine("p01");
+        assertEquals(100000, book.getSubtotalCents());
+        assertEquals(76000, book.getTotalCents()); // 10 * 80.00, then 5% VIP
+        assertEquals(24000, book.getDiscountCents());
+        assertEquals(100000 + 3750, cart.getSubtotalCents());
+        assertEquals(76000 + 3562, cart.getTotalCents()); // 5% of 37.50 is 1.875, rounded to a 1.88 discount
+        assertEquals(billingService.calculateTotalCents("Test Book", 10, "c02"), book.getTotalCents());
+
+        assertThrows(InvalidProductException.class, () -> billingService.priceCart(Map.of("p99", 1), null));
+    }
+
+    @Test
+    void testRepriceLine_MatchesFullReprice() throws InvalidProductException {
+        CartPricing cart = billingService.priceCart(Map.of("p01", 4), null);
+        assertNull(cart.getCustomer());
+        assertEquals(40000, cart.getTotalCents());
+
+        billingService.repriceLine(cart, "p02", 2);
+        billingService.repriceLine(cart, "p01", 12);
+        assertEquals(List.of("p01", "p02"), new ArrayList<>(cart.getQuantities().keySet())); // kept its place
+        CartPricing fresh = billingService.priceCart(cart.getQuantities(), null);
+        assertEquals(fresh.getTotalCents(), cart.getTotalCents());
+        assertEquals(fresh.getSubtotalCents(), cart.getSubtotalCents());
+
+        billingService.repriceLine(cart, "p01", 0);
+        assertEquals(2500, cart.getTotalCents());
+        billingService.removeLine(cart, "p02");
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getSubtotalCents());
+    }
+
+    @Test
+    void testBundle_AppliedPerWholeSetAndDroppedWithLine() throws InvalidProductException {
+        // One book plus two pens: saves 10.00 on the book and 2.50 on each pen
+        Bundle bundle = new Bundle("b01", "Book + Pens", List.of(
+                new Discount("p01", 1, 90.0), new Discount("p02", 2, 10.0)));
+        // A bundle dearer than what the cart already charges is never applied
+        Bundle worse = new Bundle("b02", "Book Pair", List.of(new Discount("p01", 2, 101.0)));
+        billingService.addCartStrategy(new BundleDiscountStrategy(List.of(bundle, worse)));
+
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        quantities.put("p01", 2);
+        quantities.put("p02", 5);
+        CartPricing cart = billingService.priceCart(quantities, null);
+        assertEquals(1, cart.getAdjustments().size());
+        assertEquals("Book + Pens x2", cart.getAdjustments().get(0).getDescription());
+        assertEquals(3000, cart.getAdjustments().get(0).getDiscountCents());
+        assertEquals(26250 - 3000, cart.getTotalCents());
+        assertEquals(3000, cart.getDiscountCents());
+
+        billingService.repriceLine(cart, "p02", 3);
+        assertEquals(1500, cart.getAdjustments().get(0).getDiscountCents());
+        billingService.removeLine(cart, "p02");
+        assertTrue(cart.getAdjustments().isEmpty());
+        assertEquals(20000, cart.getTotalCents());
+    }
 }
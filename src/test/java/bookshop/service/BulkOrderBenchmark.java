@@ -0,0 +1,64 @@
+package bookshop.service;
+
+import bookshop.model.Product;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures BulkOrderPricer throughput for 1, 2, 4, ... worker threads
+ * on a synthetic catalog and order file.
+ *
+ * Not a unit test (surefire skips it). Run after {@code mvn test-compile} with:
+ *   java -cp target/classes:target/test-classes bookshop.service.BulkOrderBenchmark
+ */
+public class BulkOrderBenchmark {
+    private static final int PRODUCTS = 5_000;
+    private static final int ORDER_LINES = 2_000_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        List<Product> catalog = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Map<Integer, Double> rules = new HashMap<>();
+            rules.put(10, 90.0 + i % 7);
+            rules.put(50, 80.0 + i % 5);
+            rules.put(200, 70.0 + i % 3);
+            catalog.add(new Product("p" + i, "Book " + i, 100.0 + i % 50, rules, 0));
+        }
+        Path order = Files.createTempFile("bulk-order", ".csv");
+        try {
+            StringBuilder sb = new StringBuilder("product_id,quantity\n");
+            for (int i = 0; i < ORDER_LINES; i++) {
+                sb.append('p').append((i * 31) % PRODUCTS).append(',').append(1 + (i * 7) % 300).append('\n');
+            }
+            Files.write(order, sb.toString().getBytes(StandardCharsets.UTF_8));
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            System.out.printf("%-8s %12s %16s%n", "threads", "ms", "lines/s");
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                BulkOrderPricer pricer = new BulkOrderPricer(new BillingService(null, null), catalog, null, pool);
+                pricer.price(order.toString(), Writer.nullWriter()); // warm-up
+                long best = Long.MAX_VALUE;
+                for (int r = 0; r < ROUNDS; r++) {
+                    long start = System.nanoTime();
+                    pricer.price(order.toString(), Writer.nullWriter());
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                pool.shutdown();
+                System.out.printf("%-8d %12.1f %16.0f%n", threads, best / 1e6, ORDER_LINES / (best / 1e9));
+            }
+        } finally {
+            Files.deleteIfExists(order);
+        }
+    }
+}
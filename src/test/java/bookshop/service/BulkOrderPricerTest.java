@@ -0,0 +1,91 @@
+package bookshop.service;
+
+import bookshop.model.Product;
+import bookshop.model.VIPCustomer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkOrderPricerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Product> catalog() {
+        Map<Integer, Double> rules = new HashMap<>();
+        rules.put(10, 80.0);
+        return List.of(new Product("p01", "Exercise Book", 100.0, rules, 0), new Product("p02", "Pen", 12.5));
+    }
+
+    @Test
+    void testPrice_StreamsLinesInOrderWithTotals() throws Exception {
+        Path order = tempDir.resolve("order.csv");
+        Files.write(order, ("product_id,quantity\n"
+                + "p01,10\n"
+                + "p99,3\n"
+                + "p02,4\n"
+                + "p02,abc\n").getBytes(StandardCharsets.UTF_8));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        StringWriter out = new StringWriter();
+        BulkOrderPricer.Summary summary;
+        try {
+            summary = new BulkOrderPricer(new BillingService(null, null), catalog(),
+                    new VIPCustomer("c01", "School"), pool).price(order.toString(), out);
+        } finally {
+            pool.shutdown();
+        }
+
+        String[] lines = out.toString().split("\\R");
+        assertEquals(BulkOrderPricer.OUTPUT_HEADER, lines[0]);
+        assertEquals("2,p01,Exercise Book,10,80.00,1000.00,240.00,760.00,OK", lines[1]);
+        assertEquals("3,p99,,3,,,,,UNKNOWN_PRODUCT", lines[2]);
+        assertEquals("4,p02,Pen,4,12.50,50.00,2.50,47.50,OK", lines[3]);
+        assertEquals("5,p02,Pen,0,,,,,INVALID_QUANTITY", lines[4]);
+        assertEquals(4, summary.getLines());
+        assertEquals(2, summary.getFailedLines());
+        assertEquals(76000 + 4750, summary.getTotalCents());
+    }
+
+    @Test
+    void testPrice_ManyChunksMatchSequentialTotal() throws Exception {
+        Path order = tempDir.resolve("big.csv");
+        StringBuilder sb = new StringBuilder("product_id,quantity\n");
+        long expected = 0;
+        BillingService billing = new BillingService(null, null);
+        List<Product> products = catalog();
+        for (int i = 0; i < 20_000; i++) {
+            Product p = products.get(i % 2);
+            int qty = 1 + i % 25;
+            sb.append(p.getProductId()).append(',').append(qty).append('\n');
+            expected += billing.priceLine(p, qty, null).getTotalCents();
+        }
+        Files.write(order, sb.toString().getBytes(StandardCharsets.UTF_8));
+        StringWriter out = new StringWriter();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        BulkOrderPricer.Summary summary;
+        try {
+            summary = new BulkOrderPricer(billing, products, null, pool).price(order.toString(), out);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(20_000, summary.getLines());
+        assertEquals(expected, summary.getTotalCents());
+        String[] lines = out.toString().split("\\R");
+        assertEquals(20_001, lines.length);
+        for (int i = 1; i < lines.length; i++) {
+            assertTrue(lines[i].startsWith((i + 1) + ","), lines[i]); // input order is kept
+        }
+    }
+}
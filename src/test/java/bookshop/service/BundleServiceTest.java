@@ -0,0 +1,38 @@
+package bookshop.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import bookshop.model.Bundle;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BundleServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testLoad_SkipsMalformedComponentsAndEmptyBundles() throws IOException {
+        Path file = dir.resolve("bundles.csv");
+        Files.write(file, List.of(
+                "bundle_id,bundle_name,components",
+                "b01,Exam Pack,\"p01:1:90.00;p02:2:40;bad;p03:x:1\"",
+                "b02,Empty,\"p01:0:10\""));
+        List<Bundle> bundles = new BundleService(file.toString()).getAllBundles();
+        assertEquals(1, bundles.size());
+        assertEquals("Exam Pack", bundles.get(0).getName());
+        assertEquals(2, bundles.get(0).getComponents().size());
+        assertEquals(40.0, bundles.get(0).getComponents().get(1).getPrice());
+    }
+
+    @Test
+    void testLoad_MissingFileMeansNoBundles() throws IOException {
+        assertTrue(new BundleService(dir.resolve("none.csv").toString()).getAllBundles().isEmpty());
+    }
+}
@@ -0,0 +1,68 @@
+package bookshop.service;
+
+import bookshop.model.Customer;
+import bookshop.model.RegularCustomer;
+import bookshop.model.VIPCustomer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerSearchIndexTest {
+
+    private static Customer customer(String id, String name, String phone) {
+        Customer c = new RegularCustomer(id, name);
+        c.setPhone(phone);
+        return c;
+    }
+
+    @Test
+    void testSearch_PhonePrefixThenNameSubstring() {
+        CustomerSearchIndex index = new CustomerSearchIndex();
+        Customer yasas = customer("c01", "Yasas", "0789049050");
+        Customer john = customer("c02", "John Smith", "0756234567");
+        Customer jo = customer("c03", "Jo 078", "");
+        index.add(yasas);
+        index.add(john);
+        index.add(jo);
+
+        assertEquals(List.of(yasas, jo), index.search("078", 10));
+        assertEquals(List.of(john), index.search("SMITH", 10));
+        assertEquals(List.of(john, jo), index.search("jo", 10));
+        assertEquals(List.of(john), index.search("n sm", 10)); // longer than a trigram
+        assertTrue(index.search("smyth", 10).isEmpty());
+        assertEquals(1, index.search("0", 1).size());
+    }
+
+    @Test
+    void testRemoveThenReAddFollowsRename() {
+        CustomerSearchIndex index = new CustomerSearchIndex();
+        Customer c = customer("c01", "Michael Brown", "0765432108");
+        index.add(c);
+
+        index.remove(c);
+        c.setName("Mike Green");
+        c.setPhone("0711111111");
+        index.add(c);
+
+        assertTrue(index.search("brown", 10).isEmpty());
+        assertTrue(index.search("0765", 10).isEmpty());
+        assertEquals(List.of(c), index.search("green", 10));
+        assertEquals(List.of(c), index.search("0711", 10));
+
+        index.remove(c);
+        assertTrue(index.search("mike", 10).isEmpty());
+        assertTrue(index.search("07", 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_StopsAtLimit() {
+        CustomerSearchIndex index = new CustomerSearchIndex();
+        for (int i = 0; i < 1000; i++) {
+            index.add(new VIPCustomer("c" + i, "Customer " + i));
+        }
+        assertEquals(10, index.search("customer", 10).size());
+        assertEquals(10, index.search("c", 10).size());
+    }
+}
@@ -0,0 +1,92 @@
+package bookshop.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import bookshop.model.Customer;
+import bookshop.model.Product;
+import bookshop.model.RegularCustomer;
+import bookshop.model.VIPCustomer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscountServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ProductService open() throws Exception {
+        Path csv = tempDir.resolve("products.csv");
+        if (!Files.exists(csv)) {
+            Files.write(csv, ("product_id,product_name,real_price,discounts,quantity\n"
+                    + "p01,pen,100.00,\"5:95.00;10:80.00\",10\n"
+                    + "p02,pencil,33.00,\"\",20\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return new ProductService(csv.toString(), tempDir.resolve("products.wal").toString());
+    }
+
+    @Test
+    void testEffectivePrices_ByTierAndCustomerType() throws Exception {
+        DiscountService discounts = new DiscountService(open());
+        Customer vip = new VIPCustomer("c1", "V");
+        Customer regular = new RegularCustomer("c2", "R");
+
+        assertEquals(10000, discounts.getEffectiveUnitPriceCents("p01", 1, null));
+        assertEquals(9500, discounts.getEffectiveUnitPriceCents("p01", 5, regular));
+        assertEquals(9500, discounts.getEffectiveUnitPriceCents("p01", 9, null));
+        assertEquals(7600, discounts.getEffectiveUnitPriceCents("p01", 12, vip));
+        assertEquals(3135, discounts.getEffectiveUnitPriceCents("p02", 1, vip));
+        assertEquals(-1, discounts.getEffectiveUnitPriceCents("p99", 1, vip));
+    }
+
+    @Test
+    void testEdits_InvalidateOnlyThatProductAndPersist() throws Exception {
+        ProductService catalog = open();
+        DiscountService discounts = new DiscountService(catalog);
+        Product pen = catalog.findProductById("p01");
+        assertEquals(9500, discounts.getEffectiveUnitPriceCents("p01", 7, null));
+
+        discounts.addDiscountCents("p01", 7, 9000);
+        assertSame(pen, catalog.findProductById("p01")); // edited in place, no reload
+        assertEquals(9000, discounts.getEffectiveUnitPriceCents("p01", 7, null));
+
+        discounts.removeDiscount("p01", 10);
+        discounts.clearDiscounts("p02");
+        assertEquals(9000, discounts.getEffectiveUnitPriceCents("p01", 50, null));
+
+        // A change made outside DiscountService is still picked up through the pricing version
+        pen.setRealPriceCents(8000);
+        assertEquals(8000, discounts.getEffectiveUnitPriceCents("p01", 1, null));
+
+        assertThrows(IOException.class, () -> discounts.addDiscountCents("p99", 1, 1));
+        ProductService reopened = open();
+        assertEquals(2, reopened.findProductById("p01").getDiscountTierCount());
+        assertEquals(9000, reopened.findProductById("p01").getDiscountPriceCents(1)); // 5, then 7
+    }
+
+    @Test
+    void testEdits_RolledBackWhenLogAppendFails() throws Exception {
+        ProductService catalog = open();
+        DiscountService discounts = new DiscountService(catalog);
+        Product pen = catalog.findProductById("p01");
+        assertEquals(8000, discounts.getEffectiveUnitPriceCents("p01", 12, null));
+
+        // A directory in place of the log makes every append fail
+        Path wal = tempDir.resolve("products.wal");
+        Files.deleteIfExists(wal);
+        Files.createDirectory(wal);
+
+        assertThrows(IOException.class, () -> discounts.addDiscountCents("p01", 12, 7000));
+        assertThrows(IOException.class, () -> discounts.removeDiscount("p01", 5));
+        assertThrows(IOException.class, () -> discounts.clearDiscounts("p01"));
+        assertEquals(2, pen.getDiscountTierCount());
+        assertEquals(9500, pen.getDiscountPriceCents(0));
+        assertEquals(8000, pen.getDiscountPriceCents(1));
+        assertEquals(8000, discounts.getEffectiveUnitPriceCents("p01", 12, null));
+    }
+}
@@ -0,0 +1,97 @@
+package bookshop.service;
+
+import bookshop.model.Product;
+import bookshop.strategy.BulkDiscountStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscountSimulatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Product> catalog() {
+        Map<Integer, Double> rules = new HashMap<>();
+        rules.put(5, 90.0);
+        return List.of(new Product("p01", "Dog", 100.0, rules, 0), new Product("p02", "Pen", 10.0));
+    }
+
+    @Test
+    void testSimulateBills_PerSkuAndTotalDelta() throws Exception {
+        Files.write(tempDir.resolve("Bill_1.txt"), ("===== BOOKSHOP BILL =====\n"
+                + "Date: 2025-11-28 01:57:42\n"
+                + "Customer: Yasas (VIP)\n"
+                + "----------------------------\n"
+                + "dog                  x6\n"
+                + "  @ Rs. 100.00\n"
+                + "  Total:    Rs. 513.00\n"
+                + "Old Product          x1\n"
+                + "  @ Rs. 5.00\n"
+                + "----------------------------\n"
+                + "GRAND TOTAL: Rs. 518.00\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve("Bill_2.txt"), ("Customer: Guest\n"
+                + "Pen                  x3\n"
+                + "Dog                  x2\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve("notes.txt"), "Dog x100\n".getBytes(StandardCharsets.UTF_8));
+        // Old format: no customer type recorded, so the bill is counted as skipped
+        Files.write(tempDir.resolve("Bill_0.txt"), ("===== BOOKSHOP BILL =====\n"
+                + "Date & Time: 2025-11-21T05:35:57.036912500\n"
+                + "----------------------------\n"
+                + "Dog x2\n"
+                + "  Qty: 2 x Rs. 100.00\n").getBytes(StandardCharsets.UTF_8));
+
+        Map<Integer, Double> candidate = new HashMap<>();
+        candidate.put(2, 95.0);
+        candidate.put(5, 80.0);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        DiscountSimulator.Report report;
+        try {
+            report = new DiscountSimulator(catalog(), pool).simulateBills(
+                    DiscountSimulator.listBills(tempDir.toString()), Map.of("p01", candidate), null);
+        } finally {
+            pool.shutdown();
+        }
+
+        DiscountSimulator.SkuImpact dog = report.getSku("p01");
+        assertEquals(2, dog.getSales());
+        assertEquals(8, dog.getUnits());
+        assertEquals(51300 + 20000, dog.getBaselineCents()); // 6 x 90 less 5% VIP, 2 x 100
+        assertEquals(45600 + 19000, dog.getCandidateCents()); // 6 x 80 less 5% VIP, 2 x 95
+        assertEquals(0, report.getSku("p02").getDeltaCents());
+        assertEquals(1, report.getSkippedSales());
+        assertEquals(1, report.getSkippedBills());
+        assertEquals(-6700, report.getDeltaCents());
+    }
+
+    @Test
+    void testSimulate_CandidateStrategiesAcrossPartitions() {
+        List<DiscountSimulator.Sale> sales = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            sales.add(new DiscountSimulator.Sale("Pen", 1 + i % 3, "VIP"));
+        }
+        // Dropping the VIP step gives back exactly the 5% discount
+        ForkJoinPool pool = new ForkJoinPool(4);
+        DiscountSimulator.Report report;
+        try {
+            report = new DiscountSimulator(catalog(), pool).simulate(sales, null, List.of(new BulkDiscountStrategy()));
+        } finally {
+            pool.shutdown();
+        }
+
+        long units = report.getSku("p02").getUnits();
+        assertEquals(99_999, units);
+        assertEquals(units * 1000, report.getCandidateCents());
+        assertTrue(report.getDeltaCents() > 0);
+    }
+}
@@ -0,0 +1,64 @@
+package bookshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void testUserBurstThenRefill() {
+        LoginThrottle throttle = new LoginThrottle(3, 1.0, 100, 100.0, now::get);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, throttle.tryAcquire("admin"));
+        }
+        long wait = throttle.tryAcquire("admin");
+        assertEquals(TimeUnit.SECONDS.toNanos(1), wait);
+        assertEquals(0, throttle.tryAcquire("cashier")); // other users unaffected
+
+        now.addAndGet(wait);
+        assertEquals(0, throttle.tryAcquire("admin"));
+        assertTrue(throttle.tryAcquire("admin") > 0);
+
+        assertEquals(5, throttle.getAcceptedAttempts());
+        assertEquals(2, throttle.getRejectedByUserLimit());
+        assertEquals(0, throttle.getRejectedByGlobalLimit());
+    }
+
+    @Test
+    void testGlobalLimitRefundsUserToken() {
+        LoginThrottle throttle = new LoginThrottle(2, 1.0, 2, 1.0, now::get);
+        assertEquals(0, throttle.tryAcquire("a"));
+        assertEquals(0, throttle.tryAcquire("b"));
+        assertTrue(throttle.tryAcquire("a") > 0); // global bucket empty
+        assertEquals(1, throttle.getRejectedByGlobalLimit());
+
+        // The refused attempt did not cost "a" its second token
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, throttle.tryAcquire("a"));
+        assertEquals(3, throttle.getAcceptedAttempts());
+        assertEquals(1, throttle.getRejectedAttempts());
+    }
+
+    @Test
+    void testTrackedUsersAreBounded() {
+        LoginThrottle throttle = new LoginThrottle(1, 1.0, 1_000_000, 1e9, now::get);
+        for (int i = 0; i < LoginThrottle.MAX_TRACKED_USERS; i++) {
+            assertEquals(0, throttle.tryAcquire("user" + i));
+        }
+        // Every bucket is still draining: newcomers share the overflow bucket
+        assertEquals(0, throttle.tryAcquire("late1"));
+        assertTrue(throttle.tryAcquire("late2") > 0);
+        assertEquals(LoginThrottle.MAX_TRACKED_USERS, throttle.getTrackedUsers());
+
+        // Once buckets have refilled they are dropped to make room
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, throttle.tryAcquire("late2"));
+        assertEquals(1, throttle.getTrackedUsers());
+    }
+}
@@ -0,0 +1,54 @@
+package bookshop.service;
+
+import bookshop.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    @Test
+    void testSearch_TokenPrefixAndRanking() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        Product pen = new Product("p01", "Pen", 100.0);
+        Product pencil = new Product("p02", "Pencil HB", 33.0);
+        Product gelPen = new Product("p03", "Gel Pen (Blue)", 150.0);
+        index.sync(List.of(pen, pencil, gelPen));
+
+        // Exact token hits rank above prefix-only hits, then by name
+        assertEquals(List.of(gelPen, pen, pencil), index.search("PEN"));
+        assertEquals(List.of(gelPen), index.search("gel pe"));
+        assertEquals(List.of(pencil), index.search("p02"));
+        assertEquals(List.of(gelPen), index.search("blue"));
+        assertTrue(index.search("ncil").isEmpty()); // tokens match by prefix, not substring
+        assertEquals(1, index.search("pen", 1).size());
+    }
+
+    @Test
+    void testSync_OnlyTouchesChangedProducts() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        List<Product> catalog = new ArrayList<>();
+        catalog.add(new Product("p01", "Pen", 100.0));
+        catalog.add(new Product("p02", "Pencil", 33.0));
+        catalog.add(new Product("p03", "Eraser", 20.0));
+        assertEquals(3, index.sync(catalog));
+
+        // Reload: fresh instances, one rename, one delete, one new product
+        List<Product> reloaded = new ArrayList<>();
+        Product pen = new Product("p01", "Pen", 90.0);
+        reloaded.add(pen);
+        reloaded.add(new Product("p02", "Crayon", 33.0));
+        reloaded.add(new Product("p04", "Ruler", 50.0));
+        assertEquals(3, index.sync(reloaded));
+
+        assertSame(pen, index.search("pen").get(0));
+        assertTrue(index.search("pencil").isEmpty());
+        assertTrue(index.search("eraser").isEmpty());
+        assertEquals(1, index.search("crayon").size());
+        assertEquals(1, index.search("ruler").size());
+        assertEquals(3, index.size());
+    }
+}
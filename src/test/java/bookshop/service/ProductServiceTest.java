@@ -0,0 +1,312 @@
+package bookshop.service;
+
+import bookshop.exceptions.InvalidProductException;
+import bookshop.exceptions.InvalidQuantityException;
+import bookshop.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path csv;
+    private Path wal;
+
+    private ProductService open() throws Exception {
+        return new ProductService(csv.toString(), wal.toString());
+    }
+
+    private void writeSnapshot() throws Exception {
+        csv = tempDir.resolve("products.csv");
+        wal = tempDir.resolve("products.wal");
+        Files.write(csv, ("product_id,product_name,real_price,discounts,quantity\n"
+                + "p01,pen,100.00,\"\",10\n"
+                + "p02,pencil,33.00,\"5:30.0\",20\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testMutationsAreLoggedAndReplayed() throws Exception {
+        writeSnapshot();
+        String snapshotBefore = new String(Files.readAllBytes(csv), StandardCharsets.UTF_8);
+
+        ProductService service = open();
+        Product pen = service.findProductById("p01");
+        pen.setQuantity(7);
+        service.updateProduct(pen);
+        service.addProduct(new Product(null, "eraser", 12.5));
+        service.deleteProduct("p02");
+
+        // The snapshot is untouched; only the log grew
+        assertEquals(snapshotBefore, new String(Files.readAllBytes(csv), StandardCharsets.UTF_8));
+        assertEquals(3, Files.readAllLines(wal).size());
+
+        ProductService reopened = open();
+        assertEquals(2, reopened.getAllProducts().size());
+        assertEquals(7, reopened.findProductById("p01").getQuantity());
+        assertNull(reopened.findProductById("p02"));
+        assertEquals("eraser", reopened.findProductById("p03").getName());
+    }
+
+    @Test
+    void testSaveAllProductsFoldsLogIntoSnapshot() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        Product pencil = service.findProductById("p02");
+        pencil.setDiscount(10, 25.0);
+        service.updateProduct(pencil);
+
+        service.saveAllProducts();
+
+        assertFalse(Files.exists(wal));
+        ProductService reopened = open();
+        assertEquals(25.0, reopened.findProductById("p02").getDiscountRules().get(10));
+        assertEquals(2, reopened.getAllProducts().size());
+    }
+
+    @Test
+    void testTornLogRecordIsSkipped() throws Exception {
+        writeSnapshot();
+        Files.write(wal, ("U,p01,pen,90.00,\"\",3\n"
+                + "U,p02,penc").getBytes(StandardCharsets.UTF_8));
+
+        ProductService service = open();
+        assertEquals(90.0, service.findProductById("p01").getRealPrice());
+        assertEquals(33.0, service.findProductById("p02").getRealPrice());
+    }
+
+    @Test
+    void testAppendAfterTornRecordWithOpenQuote() throws Exception {
+        writeSnapshot();
+        Files.write(wal, "U,p01,pen,90.00,\"5:".getBytes(StandardCharsets.UTF_8));
+
+        ProductService service = open();
+        Map<String, Integer> cart = new LinkedHashMap<>();
+        cart.put("p02", 15);
+        service.deductStock(cart);
+        Product pen = service.findProductById("p01");
+        pen.setQuantity(8);
+        service.updateProduct(pen);
+
+        ProductService reopened = open();
+        assertEquals(5, reopened.findProductById("p02").getQuantity());
+        assertEquals(8, reopened.findProductById("p01").getQuantity());
+        assertEquals(100.0, reopened.findProductById("p01").getRealPrice());
+        assertEquals(3, Files.readAllLines(wal).size()); // torn tail gone: a batch of one, then the update
+    }
+
+    @Test
+    void testRefreshPicksUpChangesFromAnotherWriter() throws Exception {
+        writeSnapshot();
+        ProductService cashier = open();
+        ProductService other = open();
+        assertFalse(cashier.refresh());
+
+        Map<String, Integer> cart = new LinkedHashMap<>();
+        cart.put("p02", 5);
+        other.deductStock(cart);
+        other.addProduct(new Product(null, "eraser", 12.5));
+        assertTrue(cashier.refresh());
+        assertEquals(15, cashier.findProductById("p02").getQuantity());
+        assertEquals("eraser", cashier.findProductById("p03").getName());
+        assertEquals(List.of("p03"), ids(cashier.queryProducts("eras", null, false)));
+        assertFalse(cashier.refresh());
+
+        // A rewritten snapshot and a dropped log reload the catalog from scratch
+        other.deleteProduct("p01");
+        other.saveAllProducts();
+        assertTrue(cashier.refresh());
+        assertNull(cashier.findProductById("p01"));
+        assertEquals(2, cashier.getAllProducts().size());
+
+        Product eraser = cashier.findProductById("p03");
+        eraser.setQuantity(4);
+        cashier.updateProduct(eraser);
+        ProductService reopened = open();
+        assertEquals(4, reopened.findProductById("p03").getQuantity());
+        assertEquals(15, reopened.findProductById("p02").getQuantity());
+    }
+
+    @Test
+    void testDeductStock_WritesOneBatch() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        Map<String, Integer> cart = new LinkedHashMap<>();
+        cart.put("p01", 4);
+        cart.put("p02", 5);
+
+        service.deductStock(cart);
+
+        assertEquals(3, Files.readAllLines(wal).size()); // batch header + two records
+        ProductService reopened = open();
+        assertEquals(6, reopened.findProductById("p01").getQuantity());
+        assertEquals(15, reopened.findProductById("p02").getQuantity());
+    }
+
+    @Test
+    void testDeductStock_InsufficientStockChangesNothing() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        Map<String, Integer> cart = new LinkedHashMap<>();
+        cart.put("p01", 4);
+        cart.put("p02", 50);
+
+        assertThrows(InvalidQuantityException.class, () -> service.deductStock(cart));
+
+        assertEquals(10, service.findProductById("p01").getQuantity());
+        assertEquals(20, service.findProductById("p02").getQuantity());
+        assertFalse(Files.exists(wal));
+    }
+
+    @Test
+    void testTornBatchIsDiscarded() throws Exception {
+        writeSnapshot();
+        Files.write(wal, ("B,2\n"
+                + "U,p01,pen,100.00,\"\",1\n").getBytes(StandardCharsets.UTF_8));
+
+        ProductService service = open();
+        assertEquals(10, service.findProductById("p01").getQuantity());
+    }
+
+    @Test
+    void testIndexesFollowRenameAndDelete() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        assertSame(service.findProductById("p01"), service.findProductByName("PEN"));
+
+        Product pen = service.findProductById("p01");
+        pen.setName("Gel Pen");
+        service.updateProduct(pen);
+        assertSame(pen, service.findProductByName("gel pen"));
+        assertThrows(InvalidProductException.class, () -> service.findProductByName("pen"));
+
+        // Replacing with a new instance swaps both the list slot and the indexes
+        Product replacement = new Product("p01", "Marker", 120.0);
+        service.updateProduct(replacement);
+        assertSame(replacement, service.findProductById("p01"));
+        assertSame(replacement, service.getAllProducts().get(0));
+        assertThrows(InvalidProductException.class, () -> service.findProductByName("gel pen"));
+
+        service.deleteProduct("p01");
+        assertNull(service.findProductById("p01"));
+        assertThrows(InvalidProductException.class, () -> service.findProductByName("marker"));
+        assertSame(service.findProductById("p02"), service.findProductByName("Pencil"));
+
+        // p02 moved up to the first slot; a replacement must land there, not in p01's old place
+        service.addProduct(new Product(null, "eraser", 12.5));
+        Product pencil = new Product("p02", "Pencil", 35.0);
+        service.updateProduct(pencil);
+        assertEquals(List.of("p02", "p03"), ids(service.getAllProducts()));
+        assertSame(pencil, service.getAllProducts().get(0));
+    }
+
+    @Test
+    void testRepriceProducts_OneBatchAndSelection() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        Product pen = service.findProductById("p01");
+
+        assertEquals(1, service.repriceProducts(PriceChange.percent(10).withTiers(true).forNamePattern("^penc")));
+        assertEquals(2, Files.readAllLines(wal).size()); // batch header + one record
+        assertSame(pen, service.findProductById("p01"));
+        assertEquals(3630, service.findProductById("p02").getRealPriceCents());
+        assertEquals(3300, service.findProductById("p02").getDiscountPriceCents(0));
+        assertSame(service.findProductById("p02"), service.findProductByName("pencil"));
+
+        assertEquals(2, service.repriceProducts(PriceChange.absolute(-500).forIdRange("p1", "p2")));
+        assertEquals(0, service.repriceProducts(PriceChange.absolute(100).forPriceBand(0, 1000)));
+
+        ProductService reopened = open();
+        assertEquals(9500, reopened.findProductById("p01").getRealPriceCents());
+        assertEquals(3130, reopened.findProductById("p02").getRealPriceCents());
+        assertEquals(3300, reopened.findProductById("p02").getDiscountPriceCents(0)); // tiers left alone
+        assertEquals(20, reopened.findProductById("p02").getQuantity());
+    }
+
+    @Test
+    void testRepriceProducts_OpenEndedIdRange() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        service.addProduct(new Product("p10", "gel pen", 50.0));
+
+        assertEquals(2, service.repriceProducts(PriceChange.absolute(100).forIdRange("p2", null)));
+        assertEquals(2, service.repriceProducts(PriceChange.absolute(100).forIdRange(null, "p2")));
+        assertEquals(10100, service.findProductById("p01").getRealPriceCents());
+        assertEquals(3500, service.findProductById("p02").getRealPriceCents());
+        assertEquals(5100, service.findProductById("p10").getRealPriceCents());
+    }
+
+    @Test
+    void testRepriceProducts_UpdatesInstancesInPlaceAndKeepsPromotions() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        Product pencil = service.findProductById("p02");
+        pencil.setPromotionTiers(Map.of(10, 2000L));
+        assertEquals(List.of("p02", "p01"), ids(service.queryProducts(null, ProductService.SortKey.PRICE, false)));
+
+        assertEquals(1, service.repriceProducts(PriceChange.percent(300).withTiers(true).forIdRange("p02", "p02")));
+        assertSame(pencil, service.findProductById("p02"));
+        assertSame(pencil, service.findProductByName("pencil"));
+        assertEquals(13200, pencil.getRealPriceCents());
+        assertEquals(12000, pencil.getUnitPriceCents(5));
+        assertEquals(2000, pencil.getUnitPriceCents(10)); // the running promotion still applies
+        assertEquals(List.of("p01", "p02"), ids(service.queryProducts(null, ProductService.SortKey.PRICE, false)));
+
+        ProductService reopened = open();
+        assertEquals(13200, reopened.findProductById("p02").getRealPriceCents());
+        assertEquals(12000, reopened.findProductById("p02").getUnitPriceCents(10)); // promotions are not persisted
+    }
+
+    @Test
+    void testQueryProducts_SortFilterAndInvalidation() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        service.addProduct(new Product("p10", "gel pen", 50.0));
+        service.addProduct(new Product("p9", "pen refill", 5.0));
+
+        assertEquals(List.of("p01", "p02", "p10", "p9"), ids(service.queryProducts(null, null, false)));
+        assertEquals(List.of("p01", "p02", "p9", "p10"), ids(service.queryProducts("", ProductService.SortKey.ID, false)));
+        assertEquals(List.of("p01", "p10", "p02", "p9"), ids(service.queryProducts(null, ProductService.SortKey.PRICE, true)));
+        assertEquals(List.of("p9", "p02", "p10", "p01"), ids(service.queryProducts("pen", ProductService.SortKey.PRICE, false)));
+        assertEquals(List.of("p9", "p10", "p02", "p01"), ids(service.queryProducts("pen", null, true)));
+        assertEquals(List.of("p9"), ids(service.queryProducts("refill", ProductService.SortKey.NAME, false)));
+        assertTrue(service.queryProducts("stapler", ProductService.SortKey.NAME, false).isEmpty());
+
+        // Any change drops the cached orders
+        Product refill = service.findProductById("p9");
+        refill.setName("ink");
+        service.updateProduct(refill);
+        service.deleteProduct("p01");
+        assertEquals(List.of("p10", "p02"), ids(service.queryProducts("pen", ProductService.SortKey.NAME, false)));
+        assertEquals(List.of("p10", "p9", "p02"), ids(service.queryProducts(null, ProductService.SortKey.NAME, false)));
+    }
+
+    @Test
+    void testQueryProducts_QuantityOrderFollowsDeductStock() throws Exception {
+        writeSnapshot();
+        ProductService service = open();
+        assertEquals(List.of("p01", "p02"), ids(service.queryProducts(null, ProductService.SortKey.QUANTITY, false)));
+
+        Map<String, Integer> sold = new LinkedHashMap<>();
+        sold.put("p02", 15);
+        service.deductStock(sold);
+
+        assertEquals(List.of("p02", "p01"), ids(service.queryProducts(null, ProductService.SortKey.QUANTITY, false)));
+        assertEquals(List.of("p01", "p02"), ids(service.queryProducts("pen", ProductService.SortKey.QUANTITY, true)));
+    }
+
+    private static List<String> ids(List<Product> products) {
+        return products.stream().map(Product::getProductId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,109 @@
+package bookshop.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import bookshop.model.Product;
+import bookshop.model.Promotion;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromotionSchedulerTest {
+
+    @TempDir
+    Path dir;
+
+    private static final LocalDateTime WEEK_START = LocalDateTime.of(2025, 1, 6, 8, 0);
+
+    // Clock the test moves by hand
+    private static final class TestClock extends Clock {
+        LocalDateTime now;
+
+        TestClock(LocalDateTime now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.toInstant(ZoneOffset.UTC);
+        }
+    }
+
+    @Test
+    void testRefresh_SwapsTiersAtBoundaries() {
+        Product book = new Product("p01", "Book", 100.0, Map.of(5, 95.0));
+        Product pen = new Product("p02", "Pen", 10.0);
+        Promotion week = new Promotion("pr1", "Back to school", "p01", WEEK_START, WEEK_START.plusDays(7), Map.of(1, 90.0, 5, 97.0));
+        Promotion hour = new Promotion("pr2", "Happy hour", "p01", WEEK_START.plusDays(1), WEEK_START.plusDays(1).plusHours(1), Map.of(1, 85.0));
+        TestClock clock = new TestClock(WEEK_START.minusMinutes(1));
+        PromotionScheduler scheduler = new PromotionScheduler(List.of(week, hour), () -> List.of(book, pen), clock);
+
+        assertFalse(scheduler.refresh());
+        assertEquals(10000, book.getUnitPriceCents(1));
+        assertEquals(WEEK_START, scheduler.getNextBoundary());
+
+        clock.now = WEEK_START;
+        int version = book.getPricingVersion();
+        assertTrue(scheduler.refresh());
+        assertTrue(book.hasPromotion());
+        assertFalse(pen.hasPromotion());
+        assertNotEquals(version, book.getPricingVersion());
+        assertEquals(9000, book.getUnitPriceCents(1));
+        assertEquals(9000, book.getUnitPriceCents(5)); // the 97.00 tier never beats 90.00
+        assertEquals(1, book.getDiscountRules().size()); // stored rules untouched
+
+        // Overlapping promotions: lowest price wins
+        clock.now = WEEK_START.plusDays(1).plusMinutes(30);
+        assertTrue(scheduler.refresh());
+        assertEquals(2, scheduler.getActivePromotions().size());
+        assertEquals(8500, book.getUnitPriceCents(1));
+
+        // Same window: nothing recomputed, nothing swapped
+        version = book.getPricingVersion();
+        clock.now = clock.now.plusMinutes(10);
+        assertFalse(scheduler.refresh());
+        assertEquals(version, book.getPricingVersion());
+
+        clock.now = WEEK_START.plusDays(7);
+        assertTrue(scheduler.refresh());
+        assertFalse(book.hasPromotion());
+        assertEquals(9500, book.getUnitPriceCents(5));
+        assertNull(scheduler.getNextBoundary());
+    }
+
+    @Test
+    void testLoad_SkipsBadRows() throws IOException {
+        Path file = dir.resolve("promotions.csv");
+        Files.write(file, List.of(
+                "promotion_id,promotion_name,product_id,start,end,discounts",
+                "pr1,Week,p01,2025-01-06T08:00,2025-01-13T08:00,\"1:90.00;5:80.00\"",
+                "pr2,Backwards,p01,2025-01-13T08:00,2025-01-06T08:00,\"1:90.00\"",
+                "pr3,Bad date,p01,soon,later,\"1:90.00\""));
+        List<Promotion> promotions = new PromotionService(file.toString()).getAllPromotions();
+        assertEquals(1, promotions.size());
+        assertEquals(2, promotions.get(0).getDiscountRules().size());
+        assertTrue(promotions.get(0).isActiveAt(WEEK_START));
+        assertFalse(promotions.get(0).isActiveAt(WEEK_START.plusDays(7)));
+    }
+}
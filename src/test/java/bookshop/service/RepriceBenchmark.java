@@ -0,0 +1,53 @@
+package bookshop.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Times ProductService.repriceProducts on a generated catalog: a catalog-wide change
+ * with tier rescaling, and a narrow id-range change.
+ *
+ * Not a unit test (surefire skips it). Run after {@code mvn test-compile} with:
+ *   java -cp target/classes:target/test-classes bookshop.service.RepriceBenchmark [products]
+ */
+public class RepriceBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path dir = Files.createTempDirectory("reprice-bench");
+        Path csv = dir.resolve("products.csv");
+        Path wal = dir.resolve("products.wal");
+        try {
+            List<String> lines = new ArrayList<>(count + 1);
+            lines.add("product_id,product_name,real_price,discounts,quantity");
+            for (int i = 1; i <= count; i++) {
+                lines.add("p" + i + ",Book " + i + "," + (100 + i % 900) + ".00,\"5:" + (90 + i % 800) + ".00;10:80.00\",50");
+            }
+            Files.write(csv, lines, StandardCharsets.UTF_8);
+            ProductService service = new ProductService(csv.toString(), wal.toString());
+            System.out.printf("%-28s %10s %10s%n", "change", "products", "ms");
+            for (int round = 0; round < ROUNDS; round++) {
+                time(service, "+1% all, tiers rescaled", PriceChange.percent(1).withTiers(true));
+                time(service, "+5.00 on p1000..p1999", PriceChange.absolute(500).forIdRange("p1000", "p1999"));
+            }
+        } finally {
+            // Background compaction may have left its own files next to the catalog
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    private static void time(ProductService service, String label, PriceChange change) throws IOException {
+        long start = System.nanoTime();
+        int n = service.repriceProducts(change);
+        System.out.printf("%-28s %10d %10.1f%n", label, n, (System.nanoTime() - start) / 1e6);
+    }
+}
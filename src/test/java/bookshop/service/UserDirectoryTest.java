@@ -0,0 +1,128 @@
+package bookshop.service;
+
+import bookshop.exceptions.LoginThrottledException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDirectoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String HASH = BCrypt.hashpw("secret", BCrypt.gensalt(4));
+
+    @Test
+    void testLoadsOnceAndFollowsFileChanges() throws Exception {
+        Path file = tempDir.resolve("users.csv");
+        Files.write(file, List.of("# user_id,username,password,role", "u01,admin," + HASH + ",MANAGER"));
+        UserDirectory users = new UserDirectory(file.toString());
+        assertEquals("u01", users.findByUsername("admin").getUserId());
+
+        UserDirectory.Account added = users.add("cashier", HASH, "CASHIER");
+        assertEquals("u02", added.getUserId());
+        assertSame(added, users.findByUsername("cashier")); // no reload after our own write
+
+        users.update(new UserDirectory.Account("u02", "till", HASH, "CASHIER"));
+        assertNull(users.findByUsername("cashier"));
+        users.delete("u01");
+        assertEquals(List.of("# user_id,username,password,role", "u02,till," + HASH + ",CASHIER"), Files.readAllLines(file));
+
+        // Edited behind our back: picked up on the next lookup
+        Files.write(file, List.of("u07,other," + HASH + ",MANAGER"));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        assertNull(users.findByUsername("till"));
+        assertEquals("u08", users.generateNextUserId());
+    }
+
+    @Test
+    void testRewritesKeepOtherLinesAndRejectBadEdits() throws Exception {
+        Path file = tempDir.resolve("users.csv");
+        Files.write(file, List.of("u01, admin ," + HASH + ",MANAGER", "", "# cashiers below", "u02,till," + HASH,
+                "u03,cashier," + HASH + ",CASHIER"));
+        UserDirectory users = new UserDirectory(file.toString());
+
+        users.update(new UserDirectory.Account("u03", "front", HASH, "CASHIER"));
+        users.add("night", HASH, "CASHIER");
+        assertEquals(List.of("u01, admin ," + HASH + ",MANAGER", "", "# cashiers below", "u02,till," + HASH,
+                "u03,front," + HASH + ",CASHIER", "u04,night," + HASH + ",CASHIER"), Files.readAllLines(file));
+
+        // Unknown ids and taken usernames change nothing
+        assertThrows(IOException.class, () -> users.update(new UserDirectory.Account("u09", "ghost", HASH, "CASHIER")));
+        assertThrows(IOException.class, () -> users.update(new UserDirectory.Account("u03", "admin", HASH, "CASHIER")));
+        assertThrows(IOException.class, () -> users.add("night", HASH, "MANAGER"));
+        users.update(new UserDirectory.Account("u03", "front", HASH, "MANAGER")); // keeping its own name is fine
+        assertEquals("MANAGER", users.findByUsername("front").getRole());
+        assertEquals(3, users.getAll().size());
+
+        users.delete("u01");
+        assertEquals(List.of("", "# cashiers below", "u02,till," + HASH,
+                "u03,front," + HASH + ",MANAGER", "u04,night," + HASH + ",CASHIER"), Files.readAllLines(file));
+    }
+
+    @Test
+    void testAuthenticate_PasswordAndRole() throws Exception {
+        Path file = tempDir.resolve("users.csv");
+        Files.write(file, List.of("u01,admin," + HASH + ",MANAGER", "u02,legacy,plain,CASHIER"));
+        AuthService auth = new AuthService(new UserDirectory(file.toString()));
+
+        assertTrue(auth.authenticate("admin", "secret", "MANAGER"));
+        assertTrue(auth.authenticate("admin", "secret", null));
+        assertFalse(auth.authenticate("admin", "secret", "CASHIER"));
+        assertFalse(auth.authenticate("admin", "wrong", "MANAGER"));
+        assertFalse(auth.authenticate("nobody", "secret", null));
+        assertFalse(auth.authenticate("legacy", "plain", null)); // unhashed passwords are refused
+    }
+
+    @Test
+    void testAuthenticate_ThrottlesUnknownUsernamesLikeKnownOnes() throws Exception {
+        Path file = tempDir.resolve("users.csv");
+        Files.write(file, List.of("u01,admin," + HASH + ",MANAGER"));
+        AuthService auth = new AuthService(new UserDirectory(file.toString()), 4,
+                Executors.newSingleThreadExecutor(), new LoginThrottle(2, 0.001, 100, 100.0));
+
+        for (String username : List.of("admin", "nobody")) {
+            assertFalse(auth.authenticate(username, "wrong", null));
+            assertFalse(auth.authenticate(username, "wrong", null));
+            assertThrows(LoginThrottledException.class, () -> auth.authenticate(username, "secret", null));
+        }
+    }
+
+    @Test
+    void testAuthenticateAsync_UpgradesCheapHashOnLogin() throws Exception {
+        Path file = tempDir.resolve("users.csv");
+        Files.write(file, List.of("u01,admin," + HASH + ",MANAGER"));
+        UserDirectory users = new UserDirectory(file.toString());
+        AuthService auth = new AuthService(users, 5, Executors.newSingleThreadExecutor(), new LoginThrottle());
+        assertEquals(4, AuthService.costOf(HASH));
+
+        assertFalse(auth.authenticateAsync("admin", "wrong", null).get(10, TimeUnit.SECONDS));
+        assertEquals(HASH, users.findByUsername("admin").getPasswordHash());
+
+        assertTrue(auth.authenticateAsync("admin", "secret", "MANAGER").get(10, TimeUnit.SECONDS));
+        String upgraded = users.findByUsername("admin").getPasswordHash();
+        assertEquals(5, AuthService.costOf(upgraded));
+        assertTrue(Files.readAllLines(file).get(0).contains(upgraded));
+        assertTrue(auth.authenticate("admin", "secret", null));
+        assertEquals(upgraded, users.findByUsername("admin").getPasswordHash()); // already at target
+
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> new AuthService(users, 5, stopped, new LoginThrottle()).authenticateAsync("admin", "secret", null).get());
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+}
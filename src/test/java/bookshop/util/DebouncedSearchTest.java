@@ -0,0 +1,86 @@
+package bookshop.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DebouncedSearchTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void testBurstOfKeystrokesRunsOnlyLastQuery() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        List<String> published = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        DebouncedSearch<String> search = new DebouncedSearch<>(q -> {
+            runs.incrementAndGet();
+            return q.toUpperCase();
+        }, r -> {
+            published.add(r);
+            done.countDown();
+        }, Runnable::run, 50, scheduler);
+
+        for (String typed : List.of("o", "ox", "oxf", "oxfo", "oxford")) {
+            search.submit(typed);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(List.of("OXFORD"), published);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testStaleInFlightResultIsDropped() throws Exception {
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> published = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        DebouncedSearch<String> search = new DebouncedSearch<>(q -> {
+            if (q.equals("slow")) {
+                slowStarted.countDown();
+                try {
+                    release.await(); // ignores the interrupt from cancel(true) by design
+                } catch (InterruptedException e) {
+                    // fall through and return a result that must not be published
+                }
+            }
+            return q;
+        }, r -> {
+            published.add(r);
+            done.countDown();
+        }, Runnable::run, 0, scheduler);
+
+        search.submit("slow");
+        assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+        search.submit("fast");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        Thread.sleep(100);
+        assertEquals(List.of("fast"), published);
+    }
+
+    @Test
+    void testCancelDropsPendingQuery() throws Exception {
+        List<String> published = new CopyOnWriteArrayList<>();
+        DebouncedSearch<String> search = new DebouncedSearch<>(q -> q, published::add, Runnable::run, 100, scheduler);
+        search.submit("again");
+        search.cancel();
+        Thread.sleep(250);
+        assertTrue(published.isEmpty());
+    }
+}
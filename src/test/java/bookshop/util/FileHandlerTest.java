@@ -0,0 +1,69 @@
+package bookshop.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileHandlerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStreamingReadCsv_ParsesFieldsAndSkipsHeader() throws Exception {
+        Path file = tempDir.resolve("products.csv");
+        Files.write(file, ("product_id,product_name,real_price,discounts,quantity\r\n"
+                + "p01, pen ,100.00,\"5:95.0;10:80.0\",3545\r\n"
+                + "\r\n"
+                + "p02,pencil,33.00,\"\",\n").getBytes(StandardCharsets.UTF_8));
+
+        List<String> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<String> discounts = new ArrayList<>();
+        List<Integer> quantities = new ArrayList<>();
+        List<Double> prices = new ArrayList<>();
+        FileHandler.readCsv(file.toString(), true, row -> {
+            ids.add(row.get(0));
+            names.add(row.get(1));
+            prices.add(row.getDouble(2));
+            discounts.add(row.get(3));
+            quantities.add(row.getInt(4, -1));
+        });
+
+        assertEquals(List.of("p01", "p02"), ids);
+        assertEquals(List.of("pen", "pencil"), names);
+        assertEquals(List.of(100.0, 33.0), prices);
+        assertEquals(List.of("5:95.0;10:80.0", ""), discounts);
+        assertEquals(List.of(3545, -1), quantities); // empty trailing field falls back to default
+    }
+
+    @Test
+    void testStreamingReadCsv_QuotedCommaDoesNotSplit() throws Exception {
+        Path file = tempDir.resolve("quoted.csv");
+        Files.write(file, "a,\"b,c\",d".getBytes(StandardCharsets.UTF_8));
+
+        List<Integer> sizes = new ArrayList<>();
+        List<String> middle = new ArrayList<>();
+        FileHandler.readCsv(file.toString(), false, row -> {
+            sizes.add(row.size());
+            middle.add(row.get(1));
+        });
+
+        assertEquals(List.of(3), sizes);
+        assertEquals(List.of("b,c"), middle);
+    }
+
+    @Test
+    void testStreamingReadCsv_MissingFileYieldsNoRows() throws Exception {
+        List<String> rows = new ArrayList<>();
+        FileHandler.readCsv(tempDir.resolve("missing.csv").toString(), true, row -> rows.add(row.get(0)));
+        assertTrue(rows.isEmpty());
+    }
+}
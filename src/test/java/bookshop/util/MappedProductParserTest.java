@@ -0,0 +1,95 @@
+package bookshop.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedProductParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ByteBuffer csv(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testParse_DecodesColumnsWithoutHeader() throws Exception {
+        List<String> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Double> prices = new ArrayList<>();
+        List<Integer> quantities = new ArrayList<>();
+        List<Map<Integer, Double>> rules = new ArrayList<>();
+
+        MappedProductParser.parse(csv("product_id,product_name,real_price,discounts,quantity\r\n"
+                + "p01, Pen ,100.00,\"5:95.0;10:80.5\",3545\r\n"
+                + "\r\n"
+                + "p02,Café,0.1,\"\",abc\n"
+                + "p03,Ruler,1e2,\"\"\n"), row -> {
+            ids.add(row.productId());
+            names.add(row.name());
+            prices.add(row.realPrice());
+            quantities.add(row.quantity());
+            rules.add(row.discountRules());
+        });
+
+        assertEquals(List.of("p01", "p02", "p03"), ids);
+        assertEquals(List.of("Pen", "Café", "Ruler"), names);
+        assertEquals(List.of(100.0, 0.1, 100.0), prices); // exponent form falls back to Double.parseDouble
+        assertEquals(List.of(3545, 0, 0), quantities);   // invalid or missing quantity -> 0
+        assertEquals(Map.of(5, 95.0, 10, 80.5), rules.get(0));
+        assertTrue(rules.get(1).isEmpty());
+    }
+
+    @Test
+    void testParse_MatchesDoubleParseDouble() throws Exception {
+        String[] values = {"0", "12.5", "-3.75", "999999.99", "0.000001", "123456789.123456", "7."};
+        StringBuilder sb = new StringBuilder("header\n");
+        for (String v : values) {
+            sb.append("p,n,").append(v).append(",\"\",1\n");
+        }
+        List<Double> parsed = new ArrayList<>();
+        MappedProductParser.parse(csv(sb.toString()), row -> parsed.add(row.realPrice()));
+
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.parseDouble(values[i]), parsed.get(i), 0.0, values[i]);
+        }
+    }
+
+    @Test
+    void testParse_InvalidPriceThrows() {
+        assertThrows(NumberFormatException.class, () ->
+                MappedProductParser.parse(csv("header\np01,Pen,abc,\"\",1\n"), row -> row.realPrice()));
+    }
+
+    @Test
+    void testParse_LargeFileCanBeReplacedAfterLoading() throws Exception {
+        Path file = tempDir.resolve("products.csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("product_id,product_name,real_price,discounts,quantity");
+        for (int i = 1; i <= 3000; i++) {
+            lines.add(String.format("p%04d,Product number %d,%d.50,\"5:1.0\",%d", i, i, i, i));
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        assertTrue(Files.size(file) > 64 * 1024);
+
+        int[] rows = {0};
+        MappedProductParser.parse(file, row -> rows[0]++);
+        assertEquals(3000, rows[0]);
+
+        // Compaction replaces the snapshot right after loading it; nothing may still hold it open
+        FileHandler.writeCsvAtomic(file.toString(), lines.subList(0, 2));
+        rows[0] = 0;
+        MappedProductParser.parse(file, row -> rows[0]++);
+        assertEquals(1, rows[0]);
+    }
+}
@@ -0,0 +1,44 @@
+package bookshop.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testParse_ExactCents() {
+        assertEquals(10000, Money.parse("100"));
+        assertEquals(1250, Money.parse(" 12.5 "));
+        assertEquals(-99, Money.parse("-0.99"));
+        assertEquals(101, Money.parse("1.005"));   // rounds half away from zero
+        assertEquals(100, Money.parse("1.0049"));
+        assertEquals(700, Money.parse("7."));
+        assertEquals(10000, Money.parse("1e2"));   // exponent falls back to Double.parseDouble
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+        assertThrows(NumberFormatException.class, () -> Money.parse(""));
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.2.3"));
+    }
+
+    @Test
+    void testFormat_TwoDecimalsAnyLocale() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("1234.50", Money.format(123450));
+        assertEquals("-0.99", Money.format(-99));
+        assertEquals(String.valueOf(Long.MIN_VALUE).length() + 1, Money.format(Long.MIN_VALUE).length());
+        assertEquals("-12.30", Money.appendTo(new StringBuilder(), -1230).toString());
+        assertEquals("Rs. 0.10", Money.appendTo(new StringBuilder("Rs. "), 10).toString());
+    }
+
+    @Test
+    void testSums_DoNotDrift() {
+        long total = 0;
+        for (int i = 0; i < 1000; i++) {
+            total += Money.parse("0.10");
+        }
+        assertEquals("100.00", Money.format(total));
+        assertEquals(2375, Money.percentOf(47500, 0.05));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+    }
+}
@@ -0,0 +1,126 @@
+package bookshop.util;
+
+import bookshop.model.Product;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the ways products.csv can be loaded into Product objects:
+ * the original readAllLines + split loop, the streaming FileHandler reader,
+ * and the byte-level MappedProductParser.
+ *
+ * Not a unit test (surefire skips it). Run after {@code mvn test-compile} with:
+ *   java -cp target/classes:target/test-classes bookshop.util.ProductLoadBenchmark
+ */
+public class ProductLoadBenchmark {
+    private static final int[] ROW_COUNTS = {10_000, 100_000, 1_000_000};
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("product-bench");
+        try {
+            System.out.printf("%-10s %14s %14s %14s%n", "rows", "split (ms)", "stream (ms)", "mapped (ms)");
+            for (int rows : ROW_COUNTS) {
+                Path file = dir.resolve("products_" + rows + ".csv");
+                writeCatalog(file, rows);
+                double split = time(() -> loadWithSplit(file), rows);
+                double stream = time(() -> loadWithStream(file), rows);
+                double mapped = time(() -> loadWithMapped(file), rows);
+                System.out.printf("%-10d %14.1f %14.1f %14.1f%n", rows, split, stream, mapped);
+                Files.delete(file);
+            }
+        } finally {
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private interface Loader {
+        List<Product> load() throws IOException;
+    }
+
+    private static double time(Loader loader, int expectedRows) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            check(loader.load(), expectedRows);
+        }
+        long total = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            List<Product> products = loader.load();
+            total += System.nanoTime() - start;
+            check(products, expectedRows);
+        }
+        return total / (MEASURED_ROUNDS * 1_000_000.0);
+    }
+
+    private static void check(List<Product> products, int expectedRows) {
+        if (products.size() != expectedRows) {
+            throw new IllegalStateException("Expected " + expectedRows + " products, got " + products.size());
+        }
+    }
+
+    private static void writeCatalog(Path file, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("product_id,product_name,real_price,discounts,quantity\n");
+            for (int i = 1; i <= rows; i++) {
+                String discounts = i % 3 == 0 ? "5:" + (i % 500) + ".50;10:" + (i % 400) + ".25" : "";
+                out.write(String.format("p%02d,Book title %d,%d.%02d,\"%s\",%d%n", i, i, 100 + i % 900, i % 100, discounts, i % 5000));
+            }
+        }
+    }
+
+    // The loop ProductService.loadProducts used before the streaming/mapped readers
+    private static List<Product> loadWithSplit(Path file) throws IOException {
+        List<Product> products = new ArrayList<>();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (int i = 1; i < lines.size(); i++) {
+            String[] columns = lines.get(i).split(",");
+            if (columns.length >= 4) {
+                String discountsStr = columns[3].trim();
+                if (discountsStr.startsWith("\"") && discountsStr.endsWith("\"")) {
+                    discountsStr = discountsStr.substring(1, discountsStr.length() - 1);
+                }
+                Map<Integer, Double> rules = FileHandler.parseDiscountString(discountsStr);
+                int qty = 0;
+                if (columns.length >= 5) {
+                    try {
+                        qty = Integer.parseInt(columns[4].trim());
+                    } catch (NumberFormatException nfe) {
+                        qty = 0;
+                    }
+                }
+                products.add(new Product(columns[0].trim(), columns[1].trim(), Double.parseDouble(columns[2].trim()), rules, qty));
+            }
+        }
+        return products;
+    }
+
+    private static List<Product> loadWithStream(Path file) throws IOException {
+        List<Product> products = new ArrayList<>();
+        FileHandler.readCsv(file.toString(), true, row -> {
+            if (row.size() >= 4) {
+                products.add(new Product(row.get(0), row.get(1), row.getDouble(2),
+                        FileHandler.parseDiscountString(row.get(3)), row.getInt(4, 0)));
+            }
+        });
+        return products;
+    }
+
+    private static List<Product> loadWithMapped(Path file) throws IOException {
+        List<Product> products = new ArrayList<>();
+        MappedProductParser.parse(file, row -> {
+            if (row.fieldCount() >= 4) {
+                products.add(new Product(row.productId(), row.name(), row.realPrice(),
+                        row.discountRules(), row.quantity()));
+            }
+        });
+        return products;
+    }
+}